@@ -0,0 +1,92 @@
+package org.cgspine.nestscroll;
+
+import android.content.Context;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.WindowManager;
+
+import org.cgspine.nestscroll.engine.FrameHistogram;
+
+/**
+ * 滚动过程中的帧耗时监控：拖动或 fling 开始时 {@link #start()}，定位动画结束时 {@link #stop()}，
+ * 期间每一帧的 vsync 间隔记录进 {@link FrameHistogram}，结束时通过 {@link Listener} 把统计结果交出去。
+ *
+ * 只在容器设置了 Listener 时才会创建，没设置时容器里没有任何额外开销。
+ * 开启之后每一帧只做基本类型的运算，不做对象分配；回调里拿到的 FrameHistogram 是同一个对象，
+ * 回调返回之后就会被清空，需要保存的值要在回调里读出来。
+ */
+public class FrameMonitor implements Choreographer.FrameCallback {
+
+    public interface Listener {
+        /**
+         * 一次滚动（从开始拖动到定位结束）的帧统计
+         */
+        void onFrameStats(FrameHistogram stats);
+    }
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final Choreographer mChoreographer;
+    private final FrameHistogram mHistogram;
+    private final Listener mListener;
+    private boolean mRunning = false;
+    private long mLastFrameNanos;
+
+    public FrameMonitor(Context context, Listener listener) {
+        mChoreographer = Choreographer.getInstance();
+        mListener = listener;
+        float refreshRate = 60;
+        WindowManager wm = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        if (wm != null) {
+            Display display = wm.getDefaultDisplay();
+            if (display != null && display.getRefreshRate() > 0) {
+                refreshRate = display.getRefreshRate();
+            }
+        }
+        mHistogram = new FrameHistogram((long) (NANOS_PER_SECOND / refreshRate));
+    }
+
+    /**
+     * 开始记录，已经在记录时什么都不做，拖动之后紧接着的 fling 算在同一次里
+     */
+    public void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mLastFrameNanos = 0;
+        mHistogram.reset();
+        mChoreographer.postFrameCallback(this);
+    }
+
+    /**
+     * 停止记录并回调统计结果，没有在记录时什么都不做
+     */
+    public void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mChoreographer.removeFrameCallback(this);
+        if (mHistogram.getFrameCount() > 0) {
+            mListener.onFrameStats(mHistogram);
+        }
+        mHistogram.reset();
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mRunning) {
+            return;
+        }
+        if (mLastFrameNanos != 0) {
+            mHistogram.record(frameTimeNanos - mLastFrameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+        mChoreographer.postFrameCallback(this);
+    }
+}
@@ -0,0 +1,215 @@
+package org.cgspine.nestscroll;
+
+import android.content.Context;
+import android.view.Choreographer;
+import android.view.WindowManager;
+import android.widget.Scroller;
+
+import org.cgspine.nestscroll.engine.ProjectionFling;
+import org.cgspine.nestscroll.engine.SpringSettler;
+
+/**
+ * 基于 {@link Choreographer.FrameCallback} 的滚动动画驱动，用来替代 computeScroll + invalidate() 的循环。
+ *
+ * computeScroll 的方式每一帧都要 invalidate 整个 ViewGroup，父 View 和所有子 View 都会重绘一遍，
+ * 而动画其实只改变了子 View 的 top/bottom。这里每一帧只推进 Scroller，再通过 {@link Callback} 把新位置交给容器去
+ * offsetTopAndBottom，除了 offsetTopAndBottom 本身需要的刷新之外不做任何 invalidate；动画一结束就不再注册帧回调。
+ *
+ * 除了 Scroller 的 fling / startScroll 之外还支持弹簧模式 {@link #spring(int, float, int)}，
+ * 由 {@link SpringSettler} 按帧时间求解，松手定位时用；以及 {@link #flingToBound(int, float, int)}，
+ * 滑到边界时停下，把剩下的速度留给列表。
+ */
+
+public class FrameScrollDriver implements Choreographer.FrameCallback {
+
+    public interface Callback {
+        /**
+         * 每一帧动画的最新位置
+         */
+        void onScrollFrame(int offset);
+
+        /**
+         * 一段动画结束，可以在这里接着开始下一段
+         */
+        void onScrollEnd();
+    }
+
+    private final Scroller mScroller;
+    private final Callback mCallback;
+    private final Choreographer mChoreographer;
+    private final SpringSettler mSpring = new SpringSettler();
+    private final ProjectionFling mProjectionFling = new ProjectionFling();
+    private boolean mSpringMode = false;
+    private boolean mProjectionMode = false;
+    private long mStartNanos;
+    /**
+     * 弹簧和 flingToBound 的起点时间要等到第一帧才能确定：Choreographer 的帧时间是这一帧 vsync 的时间，
+     * 比调用 spring / flingToBound 时的 System.nanoTime() 早，直接拿来比第一帧算出的时间是 0 甚至是负的，第一帧不会动
+     */
+    private boolean mStartPending = false;
+    private final long mFrameIntervalNanos;
+    // flingToBound 的边界，以及到达边界时剩下的速度
+    private int mBound;
+    private boolean mBoundBelow;
+    private float mBoundVelocity;
+    private boolean mRunning = false;
+    private boolean mFrameScheduled = false;
+
+    public FrameScrollDriver(Context context, Callback callback) {
+        mScroller = new Scroller(context);
+        mScroller.setFriction(0.98f);
+        mCallback = callback;
+        mChoreographer = Choreographer.getInstance();
+        final WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+        final float refreshRate = windowManager == null ? 0 : windowManager.getDefaultDisplay().getRefreshRate();
+        mFrameIntervalNanos = (long) (1e9 / (refreshRate > 0 ? refreshRate : 60));
+    }
+
+    public void fling(int start, int velocity, int min, int max) {
+        mSpringMode = false;
+        mProjectionMode = false;
+        mScroller.fling(0, start, 0, velocity, 0, 0, min, max);
+        start();
+    }
+
+    public void startScroll(int start, int dy) {
+        mSpringMode = false;
+        mProjectionMode = false;
+        mScroller.startScroll(0, start, 0, dy);
+        start();
+    }
+
+    /**
+     * 以 velocity（px/s）为初速度，用临界阻尼弹簧从 start 运动到 anchor
+     */
+    public void spring(int start, float velocity, int anchor) {
+        mScroller.forceFinished(true);
+        mSpring.start(start, velocity, anchor);
+        mSpringMode = true;
+        mProjectionMode = false;
+        mStartPending = true;
+        start();
+    }
+
+    /**
+     * 以 velocity（px/s）为初速度朝 bound 滑动（bound 在速度方向上），到达 bound 就停在 bound 上结束动画，剩下的速度留给 {@link #getCurrVelocity()}。
+     *
+     * 预测落点越过 bound 时用 {@link ProjectionFling}，滑的距离和 {@link SpringSettler#predictLanding(int, float)} 一致，
+     * 一定能到达 bound；预测落点到不了 bound 时直接用弹簧从当前速度弹到 bound
+     */
+    public void flingToBound(int start, float velocity, int bound) {
+        final float landing = mSpring.predictLanding(start, velocity);
+        final boolean below = velocity < 0;
+        if (below ? landing > bound : landing < bound) {
+            spring(start, velocity, bound);
+            return;
+        }
+        mScroller.forceFinished(true);
+        mProjectionFling.start(start, velocity);
+        mBound = bound;
+        mBoundBelow = below;
+        mBoundVelocity = velocity;
+        mSpringMode = false;
+        mProjectionMode = true;
+        mStartPending = true;
+        start();
+    }
+
+    /**
+     * 弹簧模式用的求解器，也用来按松手速度选择停靠点
+     */
+    public SpringSettler getSpringSettler() {
+        return mSpring;
+    }
+
+    /**
+     * 停止动画并移除帧回调，不会回调 {@link Callback#onScrollEnd()}
+     */
+    public void stop() {
+        mScroller.forceFinished(true);
+        mRunning = false;
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            mChoreographer.removeFrameCallback(this);
+        }
+    }
+
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    public float getCurrVelocity() {
+        if (mProjectionMode) {
+            return Math.abs(mBoundVelocity);
+        }
+        if (mSpringMode) {
+            return Math.abs(mSpring.getVelocity());
+        }
+        return mScroller.getCurrVelocity();
+    }
+
+    private void start() {
+        mRunning = true;
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            mChoreographer.postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+        if (!mRunning) {
+            return;
+        }
+        if (mStartPending) {
+            // 把起点放在这一帧的前一帧，第一帧就走一帧的距离
+            mStartPending = false;
+            mStartNanos = frameTimeNanos - mFrameIntervalNanos;
+        }
+        if (mProjectionMode) {
+            final float seconds = (frameTimeNanos - mStartNanos) / 1e9f;
+            int position = Math.round(mProjectionFling.getPosition(seconds));
+            final boolean reached = mBoundBelow ? position <= mBound : position >= mBound;
+            if (reached) {
+                position = mBound;
+                mBoundVelocity = mProjectionFling.getVelocityAt(mBound);
+            } else {
+                mBoundVelocity = mProjectionFling.getVelocity(seconds);
+            }
+            mCallback.onScrollFrame(position);
+            if (!mRunning) {
+                return;
+            }
+            if (!reached) {
+                mFrameScheduled = true;
+                mChoreographer.postFrameCallback(this);
+                return;
+            }
+        } else if (mSpringMode) {
+            final boolean moving = mSpring.update((frameTimeNanos - mStartNanos) / 1e9f);
+            mCallback.onScrollFrame(mSpring.getPosition());
+            if (!mRunning) {
+                return;
+            }
+            if (moving) {
+                mFrameScheduled = true;
+                mChoreographer.postFrameCallback(this);
+                return;
+            }
+        } else if (mScroller.computeScrollOffset()) {
+            mCallback.onScrollFrame(mScroller.getCurrY());
+            if (!mRunning) {
+                // 回调里被 stop 了
+                return;
+            }
+            if (!mScroller.isFinished()) {
+                mFrameScheduled = true;
+                mChoreographer.postFrameCallback(this);
+                return;
+            }
+        }
+        mRunning = false;
+        mCallback.onScrollEnd();
+    }
+}
@@ -0,0 +1,48 @@
+package org.cgspine.nestscroll;
+
+import android.view.View;
+
+/**
+ * 滚动期间把内容不变的 View（头部）提升为硬件层：拖动和定位的每一帧只改 translationY，
+ * 硬件层里的内容不用重新录制 display list，滚动结束时恢复成原来的 layer type。
+ *
+ * 只在 translation 模式下使用；offsetTopAndBottom 模式下 View 的位置变化本身就会让父 View 重新录制，提升硬件层没有意义。
+ */
+public class HardwareLayerHelper {
+    private View mView;
+    private int mSavedLayerType;
+    private boolean mPromoted = false;
+
+    /**
+     * 提升为硬件层，已经提升时什么都不做
+     */
+    public void promote(View view) {
+        if (mPromoted || view == null) {
+            return;
+        }
+        mPromoted = true;
+        mView = view;
+        mSavedLayerType = view.getLayerType();
+        if (mSavedLayerType != View.LAYER_TYPE_HARDWARE) {
+            view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    /**
+     * 恢复成提升之前的 layer type，没有提升时什么都不做
+     */
+    public void restore() {
+        if (!mPromoted) {
+            return;
+        }
+        mPromoted = false;
+        if (mSavedLayerType != View.LAYER_TYPE_HARDWARE && mView.getLayerType() == View.LAYER_TYPE_HARDWARE) {
+            mView.setLayerType(mSavedLayerType, null);
+        }
+        mView = null;
+    }
+
+    public boolean isPromoted() {
+        return mPromoted;
+    }
+}
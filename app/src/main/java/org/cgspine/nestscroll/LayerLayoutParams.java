@@ -0,0 +1,95 @@
+package org.cgspine.nestscroll;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.view.ViewGroup;
+
+import org.cgspine.nestscroll.engine.HeaderMapping;
+
+/**
+ * EventDispatchPlanLayout / NestingScrollPlanLayout 子 View 的布局参数。
+ *
+ * 除了头部 View 和目标 View，声明了 layout_layerInitOffset 的子 View 都是跟随目标 View 滚动的层：
+ * 目标 View 从初始位置移动到结束位置时，这一层从 {@link #initOffset} 按 {@link #mapping} 移动到 {@link #endOffset}。
+ * {@link #z} 决定绘制顺序，越大越靠上，相同时按添加顺序（目标 View 仍然盖在头部 View 上面）。
+ */
+public class LayerLayoutParams extends ViewGroup.MarginLayoutParams {
+    private static final int MAPPING_LINEAR = 0;
+    private static final int MAPPING_EASED = 1;
+    private static final int MAPPING_PARALLAX = 2;
+
+    /**
+     * 是否是跟随滚动的层
+     */
+    public boolean isLayer = false;
+    public int initOffset;
+    public int endOffset;
+    public HeaderMapping mapping = HeaderMapping.linear();
+    public int z;
+
+    public LayerLayoutParams(Context c, AttributeSet attrs) {
+        super(c, attrs);
+        TypedArray array = c.obtainStyledAttributes(attrs, R.styleable.ScrollLayer_Layout);
+        isLayer = array.hasValue(R.styleable.ScrollLayer_Layout_layout_layerInitOffset);
+        initOffset = array.getDimensionPixelOffset(R.styleable.ScrollLayer_Layout_layout_layerInitOffset, 0);
+        endOffset = array.getDimensionPixelOffset(R.styleable.ScrollLayer_Layout_layout_layerEndOffset, 0);
+        switch (array.getInt(R.styleable.ScrollLayer_Layout_layout_layerMapping, MAPPING_LINEAR)) {
+            case MAPPING_EASED:
+                mapping = HeaderMapping.eased();
+                break;
+            case MAPPING_PARALLAX:
+                mapping = HeaderMapping.parallax(
+                        array.getFloat(R.styleable.ScrollLayer_Layout_layout_layerParallaxRatio, 0.5f));
+                break;
+            default:
+                mapping = HeaderMapping.linear();
+                break;
+        }
+        z = array.getInt(R.styleable.ScrollLayer_Layout_layout_layerZ, 0);
+        array.recycle();
+    }
+
+    public LayerLayoutParams(int width, int height) {
+        super(width, height);
+    }
+
+    public LayerLayoutParams(ViewGroup.LayoutParams source) {
+        super(source);
+    }
+
+    public LayerLayoutParams(ViewGroup.MarginLayoutParams source) {
+        super(source);
+    }
+
+    public LayerLayoutParams(LayerLayoutParams source) {
+        super(source);
+        isLayer = source.isLayer;
+        initOffset = source.initOffset;
+        endOffset = source.endOffset;
+        mapping = source.mapping;
+        z = source.z;
+    }
+
+    /**
+     * 按 source 的实际类型选择构造方法，margin 和层的参数都会保留
+     */
+    public static LayerLayoutParams from(ViewGroup.LayoutParams source) {
+        if (source instanceof LayerLayoutParams) {
+            return new LayerLayoutParams((LayerLayoutParams) source);
+        } else if (source instanceof ViewGroup.MarginLayoutParams) {
+            return new LayerLayoutParams((ViewGroup.MarginLayoutParams) source);
+        }
+        return new LayerLayoutParams(source);
+    }
+
+    /**
+     * 代码里把一个子 View 设置成跟随滚动的层
+     */
+    public void setLayer(int initOffset, int endOffset, HeaderMapping mapping) {
+        this.isLayer = true;
+        this.initOffset = initOffset;
+        this.endOffset = endOffset;
+        this.mapping = mapping == null ? HeaderMapping.linear() : mapping;
+    }
+}
@@ -1,16 +1,103 @@
 package org.cgspine.nestscroll;
 
 import androidx.recyclerview.widget.RecyclerView;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.Gravity;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
+import org.cgspine.nestscroll.data.NumberedRowSource;
+import org.cgspine.nestscroll.data.PagedDataSource;
+import org.cgspine.nestscroll.data.PagedRowList;
+import org.cgspine.nestscroll.data.RowPage;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 /**
+ * 列表的数据由 {@link PagedDataSource} 分页提供，内存里只保留 {@link PagedRowList} 的窗口，
+ * 没装载的行先显示占位内容，装载完只刷新那一段；绑定时直接把字符拷给 TextView，不创建 String。
+ *
  * @author cginechen
  * @date 2016-12-29
  */
 
-public class MyRecyclerAdapter extends RecyclerView.Adapter<ViewHolder> {
+public class MyRecyclerAdapter extends RecyclerView.Adapter<ViewHolder> implements PagedRowList.Callback {
+    private static final int DEFAULT_ITEM_COUNT = 50;
+    /**
+     * 演示百万条数据时用的条数
+     */
+    public static final int FEED_ITEM_COUNT = 1000000;
+    /**
+     * 三个方案的 ViewPager 里演示百万条数据的那一页（最后一页）
+     */
+    public static final int FEED_PAGE = 2;
+    /**
+     * 三个方案的 ViewPager 共用的页面适配器：最后一页演示百万条数据的分页装载，其它页是普通的短列表
+     */
+    public static final RecyclerPageCache.AdapterFactory PAGE_FACTORY = new RecyclerPageCache.AdapterFactory() {
+        @Override
+        public RecyclerView.Adapter<?> createAdapter(int position) {
+            final MyRecyclerAdapter adapter = position == FEED_PAGE
+                    ? new MyRecyclerAdapter(new NumberedRowSource(FEED_ITEM_COUNT)) : new MyRecyclerAdapter();
+            // 交给 RecyclerView 之前先开始装载第一页，页面显示时数据大多已经到了
+            adapter.prefetch(0);
+            return adapter;
+        }
+    };
+    private static final char[] PLACEHOLDER = "…".toCharArray();
+    /**
+     * 装载完刷新时带上 payload，ItemAnimator 直接复用原来的 ViewHolder，不做淡入淡出
+     */
+    private static final Object PAYLOAD_LOADED = new Object();
+
+    private static ExecutorService sLoadExecutor;
+
+    private final PagedRowList mRows;
+
+    public MyRecyclerAdapter() {
+        this(new NumberedRowSource(DEFAULT_ITEM_COUNT));
+    }
+
+    public MyRecyclerAdapter(PagedDataSource source) {
+        final Handler handler = new Handler(Looper.getMainLooper());
+        mRows = new PagedRowList(source, PagedRowList.DEFAULT_PAGE_SIZE, PagedRowList.DEFAULT_MAX_PAGES,
+                getLoadExecutor(), new Executor() {
+                    @Override
+                    public void execute(Runnable command) {
+                        handler.post(command);
+                    }
+                });
+        mRows.setCallback(this);
+    }
+
+    /**
+     * 在后台提前装载 position 所在的页，在交给 RecyclerView 之前调用，第一屏就可以不显示占位内容
+     */
+    public void prefetch(int position) {
+        mRows.prefetch(position);
+    }
+
+    /**
+     * 所有适配器共用一个后台线程装载数据
+     */
+    private static synchronized Executor getLoadExecutor() {
+        if (sLoadExecutor == null) {
+            sLoadExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "paged-row-loader");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sLoadExecutor;
+    }
+
     @Override
     public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
         TextView textView = new TextView(parent.getContext());
@@ -26,12 +113,22 @@ public class MyRecyclerAdapter extends RecyclerView.Adapter<ViewHolder> {
 
     @Override
     public void onBindViewHolder(ViewHolder holder, int position) {
-        holder.setText("item " + position);
+        RowPage page = mRows.getPage(position);
+        if (page == null) {
+            holder.setText(PLACEHOLDER, 0, PLACEHOLDER.length);
+        } else {
+            holder.setText(page.getChars(), page.getRowStart(position), page.getRowLength(position));
+        }
     }
 
 
     @Override
     public int getItemCount() {
-        return 50;
+        return mRows.getItemCount();
+    }
+
+    @Override
+    public void onRowsLoaded(int start, int count) {
+        notifyItemRangeChanged(start, count, PAYLOAD_LOADED);
     }
 }
@@ -0,0 +1,117 @@
+package org.cgspine.nestscroll;
+
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+import android.view.View;
+
+/**
+ * ViewPager 页面的缓存：正在显示的页面由 ViewPager 持有，移出 ViewPager 的页面进一个有上限的 LRU，
+ * 超出上限的页面直接丢掉，不再像原来的 SparseArray 那样每个 tab 的页面都永远留在内存里。
+ *
+ * 页面移出 ViewPager 时记下第一个可见条目的位置和偏移（两个 int，不走 onSaveInstanceState 的 Parcelable），
+ * 再次显示时不论页面是从 LRU 里取回的还是重新创建的，都滚回原来的位置。
+ *
+ * 用法：instantiateItem 里 {@link #acquire(int)}，destroyItem 里先 {@link #release(int)} 再 removeView，
+ * 页面离开窗口时可能会回收自己的条目，先 release 才能读到滚动位置。
+ */
+public abstract class PageCache<V extends View> {
+    /**
+     * 移出 ViewPager 之后最多保留的页面数，ViewPager 默认左右各保留一页，加上这两页来回切换基本不会重新创建
+     */
+    public static final int DEFAULT_MAX_CACHED_PAGES = 2;
+
+    private final SparseArray<V> mActivePages = new SparseArray<>();
+    private final LruCache<Integer, V> mCachedPages;
+    private final SparseIntArray mSavedPositions = new SparseIntArray();
+    private final SparseIntArray mSavedOffsets = new SparseIntArray();
+
+    public PageCache(int maxCachedPages) {
+        mCachedPages = new LruCache<Integer, V>(maxCachedPages) {
+            @Override
+            protected void entryRemoved(boolean evicted, Integer key, V oldValue, V newValue) {
+                if (evicted) {
+                    onPageEvicted(oldValue);
+                }
+            }
+        };
+    }
+
+    /**
+     * 取得 position 对应的页面：正在显示的直接返回，否则从 LRU 里取回或者新建，并恢复之前的滚动位置
+     */
+    public V acquire(int position) {
+        V page = mActivePages.get(position);
+        if (page != null) {
+            return page;
+        }
+        page = mCachedPages.remove(position);
+        if (page == null) {
+            page = createPage(position);
+        }
+        final int index = mSavedPositions.indexOfKey(position);
+        if (index >= 0) {
+            restorePosition(page, mSavedPositions.valueAt(index), mSavedOffsets.get(position));
+        }
+        mActivePages.put(position, page);
+        return page;
+    }
+
+    /**
+     * 页面移出 ViewPager：记下滚动位置，放进 LRU，可能因此淘汰最久没用的页面
+     */
+    public void release(int position) {
+        final V page = mActivePages.get(position);
+        if (page == null) {
+            return;
+        }
+        mActivePages.remove(position);
+        final int firstPosition = getFirstVisiblePosition(page);
+        if (firstPosition >= 0) {
+            mSavedPositions.put(position, firstPosition);
+            mSavedOffsets.put(position, getFirstVisibleOffset(page));
+        }
+        mCachedPages.put(position, page);
+    }
+
+    /**
+     * 正在显示的页面，没有时返回 null
+     */
+    public V getActivePage(int position) {
+        return mActivePages.get(position);
+    }
+
+    /**
+     * 当前在 LRU 里的页面数
+     */
+    public int getCachedPageCount() {
+        return mCachedPages.size();
+    }
+
+    /**
+     * 丢掉 LRU 里所有的页面，滚动位置保留
+     */
+    public void trim() {
+        mCachedPages.evictAll();
+    }
+
+    protected abstract V createPage(int position);
+
+    /**
+     * @return 第一个可见条目的位置，没有条目时返回负数，这时不记录
+     */
+    protected abstract int getFirstVisiblePosition(V page);
+
+    /**
+     * @return 第一个可见条目的顶部相对列表内容区域顶部的偏移
+     */
+    protected abstract int getFirstVisibleOffset(V page);
+
+    protected abstract void restorePosition(V page, int position, int offset);
+
+    /**
+     * 页面被 LRU 淘汰，子类可以在这里释放页面持有的资源
+     */
+    protected void onPageEvicted(V page) {
+    }
+}
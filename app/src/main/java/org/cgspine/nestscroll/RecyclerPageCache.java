@@ -0,0 +1,89 @@
+package org.cgspine.nestscroll;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * RecyclerView 页面的缓存：所有页面共用一个 RecycledViewPool，LayoutManager 在页面移出窗口时把条目回收进这个池子，
+ * 切到别的页面时直接复用，不用每一页都各自创建一套 ViewHolder。
+ */
+public class RecyclerPageCache extends PageCache<RecyclerView> {
+    /**
+     * 共享池里每种条目类型最多保留的 ViewHolder 数，大约是一屏多一点的条目数；
+     * 页面移出窗口时整页回收，默认的 5 个不够下一页直接用
+     */
+    public static final int DEFAULT_MAX_RECYCLED_VIEWS = 20;
+
+    public interface AdapterFactory {
+        RecyclerView.Adapter<?> createAdapter(int position);
+    }
+
+    private final Context mContext;
+    private final AdapterFactory mAdapterFactory;
+    private final RecyclerView.RecycledViewPool mViewPool = new RecyclerView.RecycledViewPool();
+
+    /**
+     * 三个方案的 ViewPager 共用的配置：最多保留 {@link PageCache#DEFAULT_MAX_CACHED_PAGES} 个移出的页面，
+     * 页面的适配器由 {@link MyRecyclerAdapter#PAGE_FACTORY} 创建
+     */
+    public RecyclerPageCache(Context context) {
+        this(context, DEFAULT_MAX_CACHED_PAGES, MyRecyclerAdapter.PAGE_FACTORY);
+    }
+
+    public RecyclerPageCache(Context context, int maxCachedPages, AdapterFactory adapterFactory) {
+        super(maxCachedPages);
+        mContext = context;
+        mAdapterFactory = adapterFactory;
+        mViewPool.setMaxRecycledViews(0, DEFAULT_MAX_RECYCLED_VIEWS);
+    }
+
+    /**
+     * 共享的 RecycledViewPool，有多种条目类型时可以用它单独设置每种类型的上限
+     */
+    public RecyclerView.RecycledViewPool getRecycledViewPool() {
+        return mViewPool;
+    }
+
+    @Override
+    protected RecyclerView createPage(int position) {
+        RecyclerView recyclerView = new RecyclerView(mContext);
+        LinearLayoutManager layoutManager = new LinearLayoutManager(mContext);
+        // 页面移出窗口时把条目交回共享池，滚动位置由 PageCache 记录
+        layoutManager.setRecycleChildrenOnDetach(true);
+        recyclerView.setLayoutManager(layoutManager);
+        // 条目高度固定，数据页装载完刷新条目时不用重新布局整个容器
+        recyclerView.setHasFixedSize(true);
+        recyclerView.setRecycledViewPool(mViewPool);
+        recyclerView.setAdapter(mAdapterFactory.createAdapter(position));
+        return recyclerView;
+    }
+
+    @Override
+    protected int getFirstVisiblePosition(RecyclerView page) {
+        if (page.getChildCount() == 0) {
+            return RecyclerView.NO_POSITION;
+        }
+        return page.getChildAdapterPosition(page.getChildAt(0));
+    }
+
+    @Override
+    protected int getFirstVisibleOffset(RecyclerView page) {
+        final View first = page.getChildAt(0);
+        final RecyclerView.LayoutManager layoutManager = page.getLayoutManager();
+        return layoutManager.getDecoratedTop(first) - page.getPaddingTop();
+    }
+
+    @Override
+    protected void restorePosition(RecyclerView page, int position, int offset) {
+        ((LinearLayoutManager) page.getLayoutManager()).scrollToPositionWithOffset(position, offset);
+    }
+
+    @Override
+    protected void onPageEvicted(RecyclerView page) {
+        // 条目交回共享池，适配器不再被这个页面引用
+        page.setAdapter(null);
+    }
+}
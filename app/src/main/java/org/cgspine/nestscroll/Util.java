@@ -2,8 +2,11 @@ package org.cgspine.nestscroll;
 
 import android.content.Context;
 import android.util.DisplayMetrics;
+import android.view.View;
 import android.view.WindowManager;
 
+import androidx.core.view.ViewCompat;
+
 /**
  * @author cginechen
  * @date 2016-12-27
@@ -51,4 +54,43 @@ public class Util {
     public static int px2dp(Context context,int px){
         return (int) (px/getDensity(context) + 0.5);
     }
+
+    /**
+     * 只在位置变化、子 View 请求过重新布局或者 force 时才调用 layout，
+     * 拖动过程中容器因为别的原因重新布局时，不会把没变化的子 View 再布局一遍
+     */
+    public static void layoutChildIfNeeded(View child, int left, int top, int right, int bottom, boolean force) {
+        if (!force && !child.isLayoutRequested()
+                && child.getLeft() == left && child.getTop() == top
+                && child.getRight() == right && child.getBottom() == bottom) {
+            return;
+        }
+        child.layout(left, top, right, bottom);
+    }
+
+    /**
+     * 移动子 View：useTranslation 为 true 时只改 translationY（只更新 RenderNode 的属性，不动布局位置），
+     * 否则 offsetTopAndBottom。translation 模式下容器在下一次布局时把位置折算回布局里，并把 translationY 清零
+     */
+    public static void moveChild(View child, int dy, boolean useTranslation) {
+        if (dy == 0) {
+            return;
+        }
+        if (useTranslation) {
+            child.setTranslationY(child.getTranslationY() + dy);
+        } else {
+            ViewCompat.offsetTopAndBottom(child, dy);
+        }
+    }
+
+    /**
+     * 从 translation 模式切回来时，把 translationY 折算成布局位置
+     */
+    public static void foldTranslation(View child) {
+        final int translation = Math.round(child.getTranslationY());
+        if (translation != 0) {
+            child.setTranslationY(0);
+            ViewCompat.offsetTopAndBottom(child, translation);
+        }
+    }
 }
@@ -11,6 +11,10 @@ import android.widget.TextView;
 public class ViewHolder extends RecyclerView.ViewHolder {
 
     private TextView mItemView;
+    /**
+     * TextView 不会拷贝 setText(char[], int, int) 传进去的数组，这里拷一份自己的，数据页被复用时不会影响已经显示的文字
+     */
+    private char[] mChars = new char[32];
 
     public ViewHolder(TextView itemView) {
         super(itemView);
@@ -20,4 +24,12 @@ public class ViewHolder extends RecyclerView.ViewHolder {
     public void setText(String text) {
         mItemView.setText(text);
     }
+
+    public void setText(char[] chars, int start, int length) {
+        if (mChars.length < length) {
+            mChars = new char[Math.max(length, mChars.length * 2)];
+        }
+        System.arraycopy(chars, start, mChars, 0, length);
+        mItemView.setText(mChars, 0, length);
+    }
 }
@@ -0,0 +1,31 @@
+package org.cgspine.nestscroll.data;
+
+/**
+ * 演示用的数据源：第 n 行是 "item n"，直接把数字写进 {@link RowPage}，不创建 String
+ */
+public final class NumberedRowSource implements PagedDataSource {
+    private static final String PREFIX = "item ";
+
+    private final int mCount;
+
+    public NumberedRowSource(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        }
+        mCount = count;
+    }
+
+    @Override
+    public int getItemCount() {
+        return mCount;
+    }
+
+    @Override
+    public void loadRows(int start, int count, RowPage page) {
+        for (int i = 0; i < count; i++) {
+            page.beginRow();
+            page.append(PREFIX).append(start + i);
+            page.endRow();
+        }
+    }
+}
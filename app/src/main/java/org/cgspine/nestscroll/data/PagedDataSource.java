@@ -0,0 +1,19 @@
+package org.cgspine.nestscroll.data;
+
+/**
+ * 列表的分页数据源。{@link PagedRowList} 按固定大小的页向它要数据，每次要一页，在后台线程调用。
+ *
+ * 数据直接写进调用方给的 {@link RowPage}，RowPage 是复用的，写入时不需要也不应该创建 String。
+ */
+public interface PagedDataSource {
+    /**
+     * 总条数，可以在任意线程调用，需要保持不变
+     */
+    int getItemCount();
+
+    /**
+     * 在后台线程把 [start, start + count) 这些行依次写进 page，每一行 {@link RowPage#beginRow()} 开始、
+     * {@link RowPage#endRow()} 结束
+     */
+    void loadRows(int start, int count, RowPage page);
+}
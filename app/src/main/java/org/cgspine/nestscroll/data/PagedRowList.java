@@ -0,0 +1,221 @@
+package org.cgspine.nestscroll.data;
+
+import java.util.BitSet;
+import java.util.concurrent.Executor;
+
+/**
+ * 按页从 {@link PagedDataSource} 取数据的有界窗口，给百万条级别的列表用。
+ *
+ * 只有最近访问位置附近的 maxPages 页常驻内存，超出时淘汰离当前访问位置最远的一页，淘汰下来的 {@link RowPage}
+ * 放回池子给下一页复用，所以内存和条数无关，稳定滚动之后也不再分配对象。
+ * 访问到还没装载的行时返回 null，由调用方先显示占位内容；这一页和相邻的页在后台线程装载，
+ * 装载完在主线程通过 {@link Callback} 通知调用方刷新这一段。快速 fling 划过去的页等轮到后台线程时已经离开窗口，直接丢弃不装载。
+ * 第一页也在后台装载，不在主线程读数据源；不想第一屏显示占位内容时，在列表显示之前先调用 {@link #prefetch(int)}。
+ *
+ * 除了 {@link PagedDataSource#loadRows} 之外的所有方法都只能在主线程调用。
+ * 两个线程都由调用方以 Executor 的形式传进来，这个类本身不依赖 android，可以直接在 JVM 上测试。
+ */
+public final class PagedRowList {
+
+    public interface Callback {
+        /**
+         * 在主线程回调，[start, start + count) 这些行已经可以读了
+         */
+        void onRowsLoaded(int start, int count);
+    }
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_MAX_PAGES = 8;
+
+    private final PagedDataSource mSource;
+    private final int mItemCount;
+    private final int mPageSize;
+    private final int mMaxPages;
+    private final Executor mBackgroundExecutor;
+    private final Executor mMainExecutor;
+    private Callback mCallback;
+
+    /**
+     * 已经装载的页，按装载顺序存放，页数很少，直接线性查找
+     */
+    private final RowPage[] mPages;
+    private int mPageCount;
+    private final RowPage[] mPool;
+    private int mPoolSize;
+    /**
+     * 已经提交给后台、还没回到主线程的页号
+     */
+    private final BitSet mLoadingPages = new BitSet();
+    /**
+     * 最近一次访问的页号，后台线程用它判断一页是否已经过时
+     */
+    private volatile int mLastAccessPage;
+
+    public PagedRowList(PagedDataSource source, int pageSize, int maxPages,
+                        Executor backgroundExecutor, Executor mainExecutor) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive: " + pageSize);
+        }
+        if (maxPages < 3) {
+            // 当前页加上前后两页
+            throw new IllegalArgumentException("maxPages must be at least 3: " + maxPages);
+        }
+        mSource = source;
+        mItemCount = source.getItemCount();
+        mPageSize = pageSize;
+        mMaxPages = maxPages;
+        mBackgroundExecutor = backgroundExecutor;
+        mMainExecutor = mainExecutor;
+        mPages = new RowPage[maxPages];
+        mPool = new RowPage[maxPages];
+    }
+
+    public void setCallback(Callback callback) {
+        mCallback = callback;
+    }
+
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    public int getLoadedPageCount() {
+        return mPageCount;
+    }
+
+    /**
+     * 取 position 所在的页，没装载时返回 null 并开始在后台装载
+     */
+    public RowPage getPage(int position) {
+        if (position < 0 || position >= mItemCount) {
+            throw new IndexOutOfBoundsException("position " + position + " out of [0, " + mItemCount + ")");
+        }
+        final int pageIndex = position / mPageSize;
+        mLastAccessPage = pageIndex;
+        final RowPage page = findPage(pageIndex);
+        if (page == null) {
+            requestPage(pageIndex);
+        }
+        // 顺带预取前后两页，顺着滚动方向的那一页大概率马上就要用到
+        requestPage(pageIndex - 1);
+        requestPage(pageIndex + 1);
+        return page;
+    }
+
+    /**
+     * 提前在后台装载 position 所在的页，不等第一次绑定。在列表显示之前调用，装载完之前绑定的行仍然是占位内容
+     */
+    public void prefetch(int position) {
+        if (position < 0 || position >= mItemCount) {
+            throw new IndexOutOfBoundsException("position " + position + " out of [0, " + mItemCount + ")");
+        }
+        final int pageIndex = position / mPageSize;
+        mLastAccessPage = pageIndex;
+        requestPage(pageIndex);
+    }
+
+    private RowPage findPage(int pageIndex) {
+        final int start = pageIndex * mPageSize;
+        for (int i = 0; i < mPageCount; i++) {
+            if (mPages[i].getStart() == start) {
+                return mPages[i];
+            }
+        }
+        return null;
+    }
+
+    private void requestPage(final int pageIndex) {
+        if (pageIndex < 0 || pageIndex * mPageSize >= mItemCount
+                || mLoadingPages.get(pageIndex) || findPage(pageIndex) != null) {
+            return;
+        }
+        mLoadingPages.set(pageIndex);
+        final RowPage page = obtainPage(pageIndex);
+        mBackgroundExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final boolean stale = isStale(pageIndex);
+                if (!stale) {
+                    fill(page, pageIndex);
+                }
+                mMainExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onPageLoaded(page, pageIndex, stale);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * 离最近访问的页超过半个窗口，装载进来也会被马上淘汰
+     */
+    private boolean isStale(int pageIndex) {
+        return Math.abs(pageIndex - mLastAccessPage) > mMaxPages / 2;
+    }
+
+    private void fill(RowPage page, int pageIndex) {
+        final int start = pageIndex * mPageSize;
+        final int count = Math.min(mPageSize, mItemCount - start);
+        page.reset(start);
+        mSource.loadRows(start, count, page);
+        if (page.getRowCount() != count) {
+            throw new IllegalStateException("source wrote " + page.getRowCount() + " rows, expected " + count);
+        }
+    }
+
+    private void onPageLoaded(RowPage page, int pageIndex, boolean stale) {
+        mLoadingPages.clear(pageIndex);
+        if (stale || isStale(pageIndex)) {
+            recyclePage(page);
+            return;
+        }
+        addPage(page);
+        if (findPage(pageIndex) == page && mCallback != null) {
+            mCallback.onRowsLoaded(page.getStart(), page.getRowCount());
+        }
+    }
+
+    /**
+     * 窗口满了就先淘汰离最近访问位置最远的一页；新页本身最远时直接丢掉新页
+     */
+    private void addPage(RowPage page) {
+        if (mPageCount == mMaxPages) {
+            final int current = mLastAccessPage;
+            int farthest = -1;
+            int farthestDistance = Math.abs(page.getStart() / mPageSize - current);
+            for (int i = 0; i < mPageCount; i++) {
+                final int distance = Math.abs(mPages[i].getStart() / mPageSize - current);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest < 0) {
+                recyclePage(page);
+                return;
+            }
+            recyclePage(mPages[farthest]);
+            mPages[farthest] = mPages[--mPageCount];
+            mPages[mPageCount] = null;
+        }
+        mPages[mPageCount++] = page;
+    }
+
+    private RowPage obtainPage(int pageIndex) {
+        final RowPage page = mPoolSize > 0 ? mPool[--mPoolSize] : new RowPage(mPageSize);
+        mPool[mPoolSize] = null;
+        page.reset(pageIndex * mPageSize);
+        return page;
+    }
+
+    private void recyclePage(RowPage page) {
+        if (mPoolSize < mPool.length) {
+            mPool[mPoolSize++] = page;
+        }
+    }
+}
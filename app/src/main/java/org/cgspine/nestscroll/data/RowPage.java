@@ -0,0 +1,107 @@
+package org.cgspine.nestscroll.data;
+
+/**
+ * 一页数据：所有行的字符连续存放在一个 char 数组里，每行记录起点和长度。
+ *
+ * 由 {@link PagedRowList} 复用，淘汰之后清空再给下一页用，稳定之后装载和绑定都不分配对象。
+ * 绑定时用 {@link #getChars()}、{@link #getRowStart(int)}、{@link #getRowLength(int)} 直接交给 TextView.setText(char[], int, int)。
+ */
+public final class RowPage {
+    private char[] mChars = new char[256];
+    private int mCharCount;
+    private final int[] mRowStarts;
+    private final int[] mRowLengths;
+    private int mRowCount;
+    /**
+     * 这一页第一行在整个列表里的位置
+     */
+    private int mStart;
+
+    RowPage(int pageSize) {
+        mRowStarts = new int[pageSize];
+        mRowLengths = new int[pageSize];
+    }
+
+    void reset(int start) {
+        mStart = start;
+        mCharCount = 0;
+        mRowCount = 0;
+    }
+
+    public void beginRow() {
+        if (mRowCount == mRowStarts.length) {
+            throw new IllegalStateException("page is full: " + mRowCount);
+        }
+        mRowStarts[mRowCount] = mCharCount;
+    }
+
+    public void endRow() {
+        mRowLengths[mRowCount] = mCharCount - mRowStarts[mRowCount];
+        mRowCount++;
+    }
+
+    public RowPage append(CharSequence text) {
+        final int length = text.length();
+        ensureCapacity(mCharCount + length);
+        for (int i = 0; i < length; i++) {
+            mChars[mCharCount++] = text.charAt(i);
+        }
+        return this;
+    }
+
+    /**
+     * 追加一个非负整数的十进制表示，不经过 String
+     */
+    public RowPage append(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value must not be negative: " + value);
+        }
+        int digits = 1;
+        for (int v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        ensureCapacity(mCharCount + digits);
+        int index = mCharCount + digits;
+        do {
+            mChars[--index] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        mCharCount += digits;
+        return this;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > mChars.length) {
+            char[] chars = new char[Math.max(capacity, mChars.length * 2)];
+            System.arraycopy(mChars, 0, chars, 0, mCharCount);
+            mChars = chars;
+        }
+    }
+
+    public int getStart() {
+        return mStart;
+    }
+
+    public int getRowCount() {
+        return mRowCount;
+    }
+
+    public boolean contains(int position) {
+        return position >= mStart && position < mStart + mRowCount;
+    }
+
+    public char[] getChars() {
+        return mChars;
+    }
+
+    /**
+     * @param position 在整个列表里的位置
+     */
+    public int getRowStart(int position) {
+        return mRowStarts[position - mStart];
+    }
+
+    public int getRowLength(int position) {
+        return mRowLengths[position - mStart];
+    }
+}
@@ -0,0 +1,76 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 和 OverScroller / RecyclerView 一致的样条 fling 模型，用来在交接 fling 之前算出列表能吃掉多少速度。
+ *
+ * fling 的距离只和初速度有关：d(v) = friction * c * (0.35 * |v| / (friction * c)) ^ (r / (r - 1))，
+ * 其中 c 是按屏幕密度换算的物理系数，r 是减速率。反过来，从速度 v 出发滑过 available 之后剩下的速度
+ * 就是剩余距离 d(v) - available 对应的初速度，这样列表滚到边缘时剩下多少速度在 fling 开始之前就能算出来，
+ * 不用等列表停下来再去猜。
+ */
+public final class FlingModel {
+    /**
+     * ViewConfiguration.getScrollFriction() 的默认值
+     */
+    public static final float DEFAULT_FRICTION = 0.015f;
+
+    private static final float GRAVITY_EARTH = 9.80665f;
+    private static final float INCHES_PER_METER = 39.37f;
+    private static final float INFLEXION = 0.35f;
+    private static final double DECELERATION_RATE = Math.log(0.78) / Math.log(0.9);
+
+    /**
+     * friction * 物理系数
+     */
+    private final double mFrictionCoeff;
+
+    /**
+     * @param density  屏幕密度，DisplayMetrics.density
+     * @param friction 摩擦系数，一般用 ViewConfiguration.getScrollFriction()
+     */
+    public FlingModel(float density, float friction) {
+        if (density <= 0 || friction <= 0) {
+            throw new IllegalArgumentException("density and friction must be positive: " + density + ", " + friction);
+        }
+        final float ppi = density * 160f;
+        mFrictionCoeff = friction * GRAVITY_EARTH * INCHES_PER_METER * ppi * 0.84f;
+    }
+
+    /**
+     * 以 velocity 为初速度能 fling 的距离，px，不区分方向
+     */
+    public double getDistance(float velocity) {
+        if (velocity == 0) {
+            return 0;
+        }
+        final double l = Math.log(INFLEXION * Math.abs(velocity) / mFrictionCoeff);
+        return mFrictionCoeff * Math.exp(DECELERATION_RATE / (DECELERATION_RATE - 1) * l);
+    }
+
+    /**
+     * 正好 fling distance 这么远需要的初速度，px/s，不区分方向
+     */
+    public float getVelocity(double distance) {
+        if (distance <= 0) {
+            return 0;
+        }
+        final double l = Math.log(distance / mFrictionCoeff) * (DECELERATION_RATE - 1) / DECELERATION_RATE;
+        return (float) (Math.exp(l) * mFrictionCoeff / INFLEXION);
+    }
+
+    /**
+     * 以 velocity fling，只有 available 的距离可以滑时，到达边缘剩下的速度
+     *
+     * @return 和 velocity 同号，滑不到边缘时返回 0
+     */
+    public float getUnconsumedVelocity(float velocity, int available) {
+        if (available <= 0) {
+            return velocity;
+        }
+        final double remaining = getDistance(velocity) - available;
+        if (remaining <= 0) {
+            return 0;
+        }
+        return Math.copySign(getVelocity(remaining), velocity);
+    }
+}
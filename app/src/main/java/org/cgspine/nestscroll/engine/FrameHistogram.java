@@ -0,0 +1,104 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 帧耗时的定长直方图：按 1ms 一个桶记录每一帧的耗时，超过 {@link #MAX_TRACKED_MS} 的记在最后一个桶里。
+ *
+ * 所有数组在构造时分配好，{@link #record(long)} 和各个统计方法都不做对象分配，可以在每一帧的回调里直接调用。
+ * 百分位按桶计算，精度是 1ms，返回的是桶的上界。
+ */
+public final class FrameHistogram {
+    /**
+     * 单独计数的最大帧耗时，更长的帧都算在溢出桶里，但最长卡顿 {@link #getLongestFrameNanos()} 仍然是精确值
+     */
+    public static final int MAX_TRACKED_MS = 250;
+
+    private static final long NANOS_PER_MS = 1000000L;
+
+    private final int[] mBuckets = new int[MAX_TRACKED_MS + 1];
+    private final long mFrameIntervalNanos;
+    private int mFrameCount;
+    private int mDroppedFrames;
+    private long mTotalNanos;
+    private long mLongestFrameNanos;
+
+    /**
+     * @param frameIntervalNanos 一帧的预算，比如 60Hz 的屏幕是 16666667
+     */
+    public FrameHistogram(long frameIntervalNanos) {
+        if (frameIntervalNanos <= 0) {
+            throw new IllegalArgumentException("frameIntervalNanos must be positive: " + frameIntervalNanos);
+        }
+        mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    /**
+     * 记录一帧，耗时是相邻两次 vsync 回调之间的间隔
+     */
+    public void record(long frameNanos) {
+        if (frameNanos < 0) {
+            return;
+        }
+        final int ms = (int) Math.min(MAX_TRACKED_MS, frameNanos / NANOS_PER_MS);
+        mBuckets[ms]++;
+        mFrameCount++;
+        mTotalNanos += frameNanos;
+        if (frameNanos > mLongestFrameNanos) {
+            mLongestFrameNanos = frameNanos;
+        }
+        // 比预算多出来的整数帧就是丢掉的帧，留半帧的余量避免 vsync 抖动被算成丢帧
+        final long missed = (frameNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos - 1;
+        if (missed > 0) {
+            mDroppedFrames += (int) missed;
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < mBuckets.length; i++) {
+            mBuckets[i] = 0;
+        }
+        mFrameCount = 0;
+        mDroppedFrames = 0;
+        mTotalNanos = 0;
+        mLongestFrameNanos = 0;
+    }
+
+    /**
+     * @param percentile 0 ~ 100
+     * @return 至少 percentile% 的帧不超过这个耗时（ms），没有记录时返回 0
+     */
+    public int getPercentileMs(int percentile) {
+        if (mFrameCount == 0) {
+            return 0;
+        }
+        // 向上取整，p100 就是最后一帧所在的桶
+        final long threshold = Math.max(1, ((long) mFrameCount * percentile + 99) / 100);
+        long seen = 0;
+        for (int ms = 0; ms < mBuckets.length; ms++) {
+            seen += mBuckets[ms];
+            if (seen >= threshold) {
+                return ms + 1;
+            }
+        }
+        return MAX_TRACKED_MS + 1;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public int getDroppedFrames() {
+        return mDroppedFrames;
+    }
+
+    public long getTotalNanos() {
+        return mTotalNanos;
+    }
+
+    public long getLongestFrameNanos() {
+        return mLongestFrameNanos;
+    }
+
+    public long getFrameIntervalNanos() {
+        return mFrameIntervalNanos;
+    }
+}
@@ -0,0 +1,137 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 判断一次手势是纵向拖动还是横向滑动（比如里面的 ViewPager 翻页），只看 down 之后的前几个 move 采样。
+ *
+ * 每个采样同时看两样东西：从 down 到现在的位移方向，以及和上一个采样之间的瞬时速度方向。
+ * 主轴位移至少是另一轴的 {@link #DEFAULT_AXIS_RATIO} 倍（偏离主轴不超过约 26.6°）才算有把握：
+ * <ul>
+ * <li>位移有把握并且走了半个 touch slop，直接判定；</li>
+ * <li>位移和最近一段的速度方向都有把握、速度也够快，走了四分之一个 touch slop 就判定；</li>
+ * <li>一直在对角线附近犹豫，走满一个 touch slop 时按位移大的那个轴判定，和系统的做法一样晚，不会更晚。</li>
+ * </ul>
+ * 判定之后这次手势内不会再变。只做基本类型的运算，不做对象分配，可以在每个 move 事件里调用。
+ */
+public final class GestureClassifier {
+    public static final int UNDECIDED = 0;
+    public static final int VERTICAL = 1;
+    public static final int HORIZONTAL = 2;
+    /**
+     * 主轴和另一轴的最小比值
+     */
+    public static final float DEFAULT_AXIS_RATIO = 2f;
+
+    private final float mTouchSlop;
+    private final float mMinVelocity;
+    private final float mAxisRatio;
+
+    private float mDownX;
+    private float mDownY;
+    private long mDownTimeMs;
+    private float mLastX;
+    private float mLastY;
+    private long mLastTimeMs;
+    private int mSampleCount;
+    private int mDecision = UNDECIDED;
+    private long mDecisionTimeMs;
+
+    /**
+     * @param touchSlop   px，一般是 ViewConfiguration.getScaledTouchSlop()
+     * @param minVelocity px/s，按速度提前判定时主轴速度的下限，一般是 ViewConfiguration.getScaledMinimumFlingVelocity()
+     */
+    public GestureClassifier(float touchSlop, float minVelocity) {
+        this(touchSlop, minVelocity, DEFAULT_AXIS_RATIO);
+    }
+
+    public GestureClassifier(float touchSlop, float minVelocity, float axisRatio) {
+        if (touchSlop <= 0 || axisRatio <= 1) {
+            throw new IllegalArgumentException("touchSlop must be positive and axisRatio greater than 1: "
+                    + touchSlop + ", " + axisRatio);
+        }
+        mTouchSlop = touchSlop;
+        mMinVelocity = minVelocity;
+        mAxisRatio = axisRatio;
+    }
+
+    /**
+     * 手指按下，开始新的一次判断
+     */
+    public void reset(long downTimeMs, float x, float y) {
+        mDownX = x;
+        mDownY = y;
+        mDownTimeMs = downTimeMs;
+        mLastX = x;
+        mLastY = y;
+        mLastTimeMs = downTimeMs;
+        mSampleCount = 0;
+        mDecision = UNDECIDED;
+        mDecisionTimeMs = 0;
+    }
+
+    /**
+     * 喂一个 move 采样
+     *
+     * @return 目前的判定结果，{@link #UNDECIDED}、{@link #VERTICAL} 或者 {@link #HORIZONTAL}
+     */
+    public int addSample(long timeMs, float x, float y) {
+        if (mDecision != UNDECIDED) {
+            return mDecision;
+        }
+        mSampleCount++;
+        final float adx = Math.abs(x - mDownX);
+        final float ady = Math.abs(y - mDownY);
+        final long dt = timeMs - mLastTimeMs;
+        final float stepX = x - mLastX;
+        final float stepY = y - mLastY;
+        mLastX = x;
+        mLastY = y;
+        mLastTimeMs = timeMs;
+
+        final int axis = ady >= adx * mAxisRatio ? VERTICAL : adx >= ady * mAxisRatio ? HORIZONTAL : UNDECIDED;
+        final float major = Math.max(adx, ady);
+        if (axis != UNDECIDED && major >= mTouchSlop / 2) {
+            return decide(axis, timeMs);
+        }
+        if (axis != UNDECIDED && major >= mTouchSlop / 4 && mSampleCount >= 2 && dt > 0
+                && isFastAlong(axis, stepX, stepY, dt)) {
+            return decide(axis, timeMs);
+        }
+        if (major >= mTouchSlop) {
+            return decide(ady >= adx ? VERTICAL : HORIZONTAL, timeMs);
+        }
+        return UNDECIDED;
+    }
+
+    /**
+     * 最近一段的速度方向也在这个轴上，并且够快
+     */
+    private boolean isFastAlong(int axis, float stepX, float stepY, long dt) {
+        final float major = Math.abs(axis == VERTICAL ? stepY : stepX);
+        final float minor = Math.abs(axis == VERTICAL ? stepX : stepY);
+        return major >= minor * mAxisRatio && major * 1000f / dt >= mMinVelocity;
+    }
+
+    private int decide(int axis, long timeMs) {
+        mDecision = axis;
+        mDecisionTimeMs = timeMs;
+        return axis;
+    }
+
+    public int getDecision() {
+        return mDecision;
+    }
+
+    /**
+     * 从按下到判定用了多少毫秒，还没判定时返回 -1
+     */
+    public long getDecisionDelayMs() {
+        return mDecision == UNDECIDED ? -1 : mDecisionTimeMs - mDownTimeMs;
+    }
+
+    /**
+     * 判定时用了几个 move 采样
+     */
+    public int getSampleCount() {
+        return mSampleCount;
+    }
+}
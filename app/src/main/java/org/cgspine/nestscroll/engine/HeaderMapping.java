@@ -0,0 +1,115 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * target 偏移量到 header 偏移量的映射曲线。
+ *
+ * {@link OffsetEngine} 只在偏移范围或曲线变化的时候调用 {@link #map(int, int, int, int, int)}，
+ * 把整个 target 偏移范围烘焙成一张 int 查找表，move 时只读一次数组。所以这里的实现可以随意做浮点、三角函数之类的运算，
+ * 不会落到每个 move 事件上。
+ *
+ * 调用时保证 targetEndOffset < targetOffset < targetInitOffset，两端的值由 OffsetEngine 直接截断，不会走到这里。
+ */
+public abstract class HeaderMapping {
+
+    /**
+     * @param targetOffset     target 当前的偏移量
+     * @param targetInitOffset target 初始的偏移量（完全展开）
+     * @param targetEndOffset  target 结束位置的偏移量（完全收起）
+     * @param headerInitOffset header 初始的偏移量
+     * @param headerEndOffset  header 结束位置的偏移量
+     * @return header 的偏移量
+     */
+    public abstract int map(int targetOffset, int targetInitOffset, int targetEndOffset,
+                            int headerInitOffset, int headerEndOffset);
+
+    /**
+     * 线性插值，也是默认的映射
+     */
+    public static HeaderMapping linear() {
+        return LINEAR;
+    }
+
+    /**
+     * 先慢后快再慢（smoothstep），header 在两端附近移动得慢一些
+     */
+    public static HeaderMapping eased() {
+        return EASED;
+    }
+
+    /**
+     * 阶梯映射，header 只停在 steps + 1 个位置上
+     */
+    public static HeaderMapping stepped(int steps) {
+        if (steps <= 0) {
+            throw new IllegalArgumentException("steps must be positive: " + steps);
+        }
+        return new Stepped(steps);
+    }
+
+    /**
+     * 视差：target 每移动 1px，header 移动 ratio px，超出 header 的偏移范围后停在边界上
+     */
+    public static HeaderMapping parallax(float ratio) {
+        return new Parallax(ratio);
+    }
+
+    private static final HeaderMapping LINEAR = new HeaderMapping() {
+        @Override
+        public int map(int targetOffset, int targetInitOffset, int targetEndOffset,
+                       int headerInitOffset, int headerEndOffset) {
+            return headerEndOffset + (int) ((long) (targetOffset - targetEndOffset)
+                    * (headerInitOffset - headerEndOffset) / (targetInitOffset - targetEndOffset));
+        }
+    };
+
+    private static final HeaderMapping EASED = new HeaderMapping() {
+        @Override
+        public int map(int targetOffset, int targetInitOffset, int targetEndOffset,
+                       int headerInitOffset, int headerEndOffset) {
+            float t = progress(targetOffset, targetInitOffset, targetEndOffset);
+            t = t * t * (3 - 2 * t);
+            return headerEndOffset + Math.round(t * (headerInitOffset - headerEndOffset));
+        }
+    };
+
+    private static class Stepped extends HeaderMapping {
+        private final int mSteps;
+
+        Stepped(int steps) {
+            mSteps = steps;
+        }
+
+        @Override
+        public int map(int targetOffset, int targetInitOffset, int targetEndOffset,
+                       int headerInitOffset, int headerEndOffset) {
+            float t = progress(targetOffset, targetInitOffset, targetEndOffset);
+            t = (float) Math.floor(t * mSteps) / mSteps;
+            return headerEndOffset + Math.round(t * (headerInitOffset - headerEndOffset));
+        }
+    }
+
+    private static class Parallax extends HeaderMapping {
+        private final float mRatio;
+
+        Parallax(float ratio) {
+            mRatio = ratio;
+        }
+
+        @Override
+        public int map(int targetOffset, int targetInitOffset, int targetEndOffset,
+                       int headerInitOffset, int headerEndOffset) {
+            int header = headerInitOffset - Math.round((targetInitOffset - targetOffset) * mRatio
+                    * Integer.signum(headerInitOffset - headerEndOffset));
+            int min = Math.min(headerInitOffset, headerEndOffset);
+            int max = Math.max(headerInitOffset, headerEndOffset);
+            return Math.max(min, Math.min(max, header));
+        }
+    }
+
+    /**
+     * @return 0 表示在结束位置，1 表示在初始位置
+     */
+    static float progress(int targetOffset, int targetInitOffset, int targetEndOffset) {
+        return (float) (targetOffset - targetEndOffset) / (targetInitOffset - targetEndOffset);
+    }
+}
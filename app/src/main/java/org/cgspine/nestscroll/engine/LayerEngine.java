@@ -0,0 +1,166 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 任意多个跟随 target 滚动的层（封面、标题栏、筛选条……）的偏移量引擎。
+ *
+ * 每一层声明自己的偏移范围和 {@link HeaderMapping}，target 移动时由 {@link #setTargetOffset(int)}
+ * 一次遍历算出所有层的新偏移量和位移，调用方拿 {@link #getLayerDelta(int)} 一次性把所有层移过去，
+ * 不需要层与层之间互相依赖、逐个回调。
+ *
+ * 和 {@link OffsetEngine} 一样，每一层的曲线在层或者 target 范围变化时烘焙成查找表，
+ * 所有层共用一个按 (层, target 偏移量) 索引的 int 数组；移动时每层只读一次数组，不做对象分配。
+ */
+public final class LayerEngine {
+    private int mTargetInitOffset;
+    private int mTargetEndOffset;
+    private int mTargetCurrentOffset;
+
+    private int mLayerCount;
+    private int[] mInitOffsets = new int[4];
+    private int[] mEndOffsets = new int[4];
+    private HeaderMapping[] mMappings = new HeaderMapping[4];
+    private int[] mCurrentOffsets = new int[4];
+    private int[] mDeltas = new int[4];
+    /**
+     * mTable[layer * mTableStride + (t - mTargetEndOffset)] 是 target 偏移量为 t 时这一层的偏移量
+     */
+    private int[] mTable = new int[0];
+    private int mTableStride;
+    private boolean mTableDirty = true;
+
+    public LayerEngine(int targetInitOffset, int targetEndOffset) {
+        mTargetInitOffset = targetInitOffset;
+        mTargetEndOffset = targetEndOffset;
+        mTargetCurrentOffset = targetInitOffset;
+    }
+
+    /**
+     * 修改 target 的偏移范围，下一次 {@link #setTargetOffset(int)} 时重新烘焙
+     */
+    public void setTargetOffsets(int initOffset, int endOffset) {
+        if (mTargetInitOffset == initOffset && mTargetEndOffset == endOffset) {
+            return;
+        }
+        mTargetInitOffset = initOffset;
+        mTargetEndOffset = endOffset;
+        mTableDirty = true;
+    }
+
+    /**
+     * 清空所有层，一般在重新布局、重新收集层之前调用
+     */
+    public void clearLayers() {
+        for (int i = 0; i < mLayerCount; i++) {
+            mMappings[i] = null;
+        }
+        mLayerCount = 0;
+        mTableDirty = true;
+    }
+
+    /**
+     * 添加一层，新层的偏移量按当前 target 偏移量直接算好，位移记为 0
+     *
+     * @param initOffset target 在初始位置（完全展开）时这一层的偏移量
+     * @param endOffset  target 在结束位置（完全收起）时这一层的偏移量
+     * @param mapping    为 null 时是线性的
+     * @return 这一层的下标
+     */
+    public int addLayer(int initOffset, int endOffset, HeaderMapping mapping) {
+        if (mLayerCount == mInitOffsets.length) {
+            final int capacity = mLayerCount * 2;
+            mInitOffsets = grow(mInitOffsets, capacity);
+            mEndOffsets = grow(mEndOffsets, capacity);
+            mCurrentOffsets = grow(mCurrentOffsets, capacity);
+            mDeltas = grow(mDeltas, capacity);
+            HeaderMapping[] mappings = new HeaderMapping[capacity];
+            System.arraycopy(mMappings, 0, mappings, 0, mLayerCount);
+            mMappings = mappings;
+        }
+        final int index = mLayerCount++;
+        mInitOffsets[index] = initOffset;
+        mEndOffsets[index] = endOffset;
+        mMappings[index] = mapping == null ? HeaderMapping.linear() : mapping;
+        mTableDirty = true;
+        // 表等到下一次移动时再统一烘焙，这里直接调一次曲线
+        final int t = mTargetCurrentOffset;
+        mCurrentOffsets[index] = t >= mTargetInitOffset ? initOffset : t <= mTargetEndOffset ? endOffset
+                : mMappings[index].map(t, mTargetInitOffset, mTargetEndOffset, initOffset, endOffset);
+        mDeltas[index] = 0;
+        return index;
+    }
+
+    private static int[] grow(int[] array, int capacity) {
+        int[] grown = new int[capacity];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /**
+     * target 移动到 targetOffset，一次遍历算出所有层的偏移量和位移
+     */
+    public void setTargetOffset(int targetOffset) {
+        ensureTable();
+        mTargetCurrentOffset = targetOffset;
+        for (int i = 0; i < mLayerCount; i++) {
+            final int offset = computeLayerOffset(i, targetOffset);
+            mDeltas[i] = offset - mCurrentOffsets[i];
+            mCurrentOffsets[i] = offset;
+        }
+    }
+
+    private void ensureTable() {
+        if (!mTableDirty) {
+            return;
+        }
+        mTableDirty = false;
+        final int stride = mTargetInitOffset - mTargetEndOffset + 1;
+        mTableStride = stride;
+        if (stride <= 2 || mLayerCount == 0) {
+            return;
+        }
+        final int size = stride * mLayerCount;
+        if (mTable.length < size) {
+            mTable = new int[size];
+        }
+        for (int layer = 0; layer < mLayerCount; layer++) {
+            final int base = layer * stride;
+            final HeaderMapping mapping = mMappings[layer];
+            for (int i = 1; i < stride - 1; i++) {
+                mTable[base + i] = mapping.map(mTargetEndOffset + i, mTargetInitOffset, mTargetEndOffset,
+                        mInitOffsets[layer], mEndOffsets[layer]);
+            }
+        }
+    }
+
+    /**
+     * 两端截断，中间查表
+     */
+    private int computeLayerOffset(int layer, int targetOffset) {
+        if (targetOffset >= mTargetInitOffset) {
+            return mInitOffsets[layer];
+        }
+        if (targetOffset <= mTargetEndOffset) {
+            return mEndOffsets[layer];
+        }
+        return mTable[layer * mTableStride + targetOffset - mTargetEndOffset];
+    }
+
+    public int getLayerCount() {
+        return mLayerCount;
+    }
+
+    public int getLayerOffset(int layer) {
+        return mCurrentOffsets[layer];
+    }
+
+    /**
+     * 最近一次 {@link #setTargetOffset(int)} 时这一层实际移动的距离
+     */
+    public int getLayerDelta(int layer) {
+        return mDeltas[layer];
+    }
+
+    public int getTargetCurrentOffset() {
+        return mTargetCurrentOffset;
+    }
+}
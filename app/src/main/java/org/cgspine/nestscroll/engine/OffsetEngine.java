@@ -0,0 +1,196 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 三种方案共用的偏移量引擎：维护 target / header 的偏移量，负责边界限制以及 header 跟随 target 的映射。
+ *
+ * 不依赖任何 android.* 的类，所以可以直接在 JVM 上做单元测试和压测。
+ * {@link #applyDelta(int)} 与 {@link #applyAbsolute(int)} 是每个 move 事件都会走到的热路径，不做任何对象分配：
+ * 返回值是 target 实际移动的距离，header 实际移动的距离通过 {@link #getHeaderDelta()} 读取，
+ * 调用方拿这两个值去 offsetTopAndBottom 即可。
+ *
+ * header 跟随 target 的曲线由 {@link HeaderMapping} 决定，偏移范围或曲线变化时整条曲线会被烘焙成一张按 target 偏移量索引的
+ * int 查找表，之后每次 move 只是一次数组读取，和曲线本身有多复杂无关。
+ */
+public class OffsetEngine {
+    /**
+     * target View 初始的偏移量（完全展开）
+     */
+    private int mTargetInitOffset;
+    /**
+     * target View 结束位置的偏移量（完全收起）
+     */
+    private int mTargetEndOffset;
+    private int mTargetCurrentOffset;
+    /**
+     * header View 初始的偏移量
+     */
+    private int mHeaderInitOffset;
+    /**
+     * header View 结束位置的偏移量
+     */
+    private int mHeaderEndOffset;
+    private int mHeaderCurrentOffset;
+    /**
+     * 最近一次 apply 时 header 实际移动的距离
+     */
+    private int mHeaderDelta;
+    private HeaderMapping mHeaderMapping = HeaderMapping.linear();
+    /**
+     * mHeaderTable[t - mTargetEndOffset] 是 target 偏移量为 t 时 header 的偏移量，
+     * 数组够大时范围变化后直接复用，不重新分配
+     */
+    private int[] mHeaderTable = new int[0];
+
+    public OffsetEngine(int targetInitOffset, int targetEndOffset, int headerInitOffset, int headerEndOffset) {
+        mTargetInitOffset = targetInitOffset;
+        mTargetEndOffset = targetEndOffset;
+        mHeaderInitOffset = headerInitOffset;
+        mHeaderEndOffset = headerEndOffset;
+        mTargetCurrentOffset = targetInitOffset;
+        mHeaderCurrentOffset = headerInitOffset;
+        rebuildHeaderTable();
+    }
+
+    /**
+     * 修改 header 跟随 target 的曲线，header 的位置会按新的曲线重新计算
+     */
+    public void setHeaderMapping(HeaderMapping mapping) {
+        if (mapping == null) {
+            mapping = HeaderMapping.linear();
+        }
+        if (mHeaderMapping == mapping) {
+            return;
+        }
+        mHeaderMapping = mapping;
+        onRangeChanged();
+    }
+
+    public HeaderMapping getHeaderMapping() {
+        return mHeaderMapping;
+    }
+
+    /**
+     * 修改 target 的偏移范围，当前偏移量不变，header 的位置会按新的范围重新计算
+     */
+    public void setTargetOffsets(int initOffset, int endOffset) {
+        if (mTargetInitOffset == initOffset && mTargetEndOffset == endOffset) {
+            return;
+        }
+        mTargetInitOffset = initOffset;
+        mTargetEndOffset = endOffset;
+        onRangeChanged();
+    }
+
+    /**
+     * 修改 header 的偏移范围，header 的位置会按新的范围重新计算
+     */
+    public void setHeaderOffsets(int initOffset, int endOffset) {
+        if (mHeaderInitOffset == initOffset && mHeaderEndOffset == endOffset) {
+            return;
+        }
+        mHeaderInitOffset = initOffset;
+        mHeaderEndOffset = endOffset;
+        onRangeChanged();
+    }
+
+    private void onRangeChanged() {
+        rebuildHeaderTable();
+        int headerTarget = computeHeaderOffset(mTargetCurrentOffset);
+        mHeaderDelta = headerTarget - mHeaderCurrentOffset;
+        mHeaderCurrentOffset = headerTarget;
+    }
+
+    /**
+     * 按 dy 移动 target
+     *
+     * @return target 实际移动的距离（受边界限制，可能小于 dy）
+     */
+    public int applyDelta(int dy) {
+        return applyAbsolute(mTargetCurrentOffset + dy);
+    }
+
+    /**
+     * 移动 target 到指定位置，同时计算 header 的新位置
+     *
+     * @return target 实际移动的距离
+     */
+    public int applyAbsolute(int target) {
+        if (target < mTargetEndOffset) {
+            target = mTargetEndOffset;
+        }
+        final int targetDelta = target - mTargetCurrentOffset;
+        mTargetCurrentOffset = target;
+        final int headerTarget = computeHeaderOffset(target);
+        mHeaderDelta = headerTarget - mHeaderCurrentOffset;
+        mHeaderCurrentOffset = headerTarget;
+        return targetDelta;
+    }
+
+    /**
+     * 按当前的偏移范围和曲线重新生成查找表，两个端点不进表
+     */
+    private void rebuildHeaderTable() {
+        final int size = mTargetInitOffset - mTargetEndOffset + 1;
+        if (size <= 2) {
+            return;
+        }
+        if (mHeaderTable.length < size) {
+            mHeaderTable = new int[size];
+        }
+        for (int i = 1; i < size - 1; i++) {
+            mHeaderTable[i] = mHeaderMapping.map(mTargetEndOffset + i, mTargetInitOffset, mTargetEndOffset,
+                    mHeaderInitOffset, mHeaderEndOffset);
+        }
+    }
+
+    /**
+     * target 偏移量到 header 偏移量的映射：两端截断，中间查表。
+     */
+    private int computeHeaderOffset(int targetOffset) {
+        if (targetOffset >= mTargetInitOffset) {
+            return mHeaderInitOffset;
+        }
+        if (targetOffset <= mTargetEndOffset) {
+            return mHeaderEndOffset;
+        }
+        return mHeaderTable[targetOffset - mTargetEndOffset];
+    }
+
+    /**
+     * 上滑时父 View 还能消耗的距离
+     */
+    public int getConsumableUp() {
+        return mTargetCurrentOffset - mTargetEndOffset;
+    }
+
+    /**
+     * 最近一次 apply 时 header 实际移动的距离
+     */
+    public int getHeaderDelta() {
+        return mHeaderDelta;
+    }
+
+    public int getTargetCurrentOffset() {
+        return mTargetCurrentOffset;
+    }
+
+    public int getTargetInitOffset() {
+        return mTargetInitOffset;
+    }
+
+    public int getTargetEndOffset() {
+        return mTargetEndOffset;
+    }
+
+    public int getHeaderCurrentOffset() {
+        return mHeaderCurrentOffset;
+    }
+
+    public int getHeaderInitOffset() {
+        return mHeaderInitOffset;
+    }
+
+    public int getHeaderEndOffset() {
+        return mHeaderEndOffset;
+    }
+}
@@ -0,0 +1,11 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 每次手势（从开始拖动到定位结束）回调一次，而不是每个 move 回调一次
+ */
+public interface OnScrollSessionListener {
+    /**
+     * @param session 这次手势的汇总。容器会复用同一个对象，回调返回之后内容就会被清掉，需要保存的值要在回调里读出来
+     */
+    void onScrollSession(ScrollSession session);
+}
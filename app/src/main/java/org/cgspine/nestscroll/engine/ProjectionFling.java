@@ -0,0 +1,61 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 和 {@link SpringSettler#predictLanding(int, float)} 一致的 fling：速度按 e^{-t/τ} 衰减，τ 就是预测落点用的投影时间，
+ * 位移 x(t) = x0 + v0τ(1 - e^{-t/τ})，总距离正好是 v0τ，真正滑到的位置和预测的落点一致。
+ *
+ * 往上甩、预测会越过结束位置时用它滑到结束位置：Scroller.fling 的距离和预测对不上，会停在半路再从 0 速度弹过去；
+ * 这里到达任意位置时的速度都有解析解 v = v0 - (x - x0) / τ，剩下的速度可以原样交给列表。
+ *
+ * 纯 Java 实现，按经过的时间求解析解，和帧率无关。速度的单位是 px/s，正数表示偏移量变大（往下）。
+ */
+public final class ProjectionFling {
+    private final float mTau;
+    private float mStart;
+    private float mV0;
+
+    public ProjectionFling() {
+        this(SpringSettler.DEFAULT_PROJECTION_SECONDS);
+    }
+
+    public ProjectionFling(float projectionSeconds) {
+        if (projectionSeconds <= 0) {
+            throw new IllegalArgumentException("projection must be positive: " + projectionSeconds);
+        }
+        mTau = projectionSeconds;
+    }
+
+    public void start(int position, float velocity) {
+        mStart = position;
+        mV0 = velocity;
+    }
+
+    /**
+     * 最终停下的位置，和 {@link SpringSettler#predictLanding(int, float)} 相同
+     */
+    public float getLanding() {
+        return mStart + mV0 * mTau;
+    }
+
+    /**
+     * 开始之后 seconds 秒时的位置
+     */
+    public float getPosition(float seconds) {
+        return mStart + mV0 * mTau * (1 - (float) Math.exp(-Math.max(0, seconds) / mTau));
+    }
+
+    /**
+     * 开始之后 seconds 秒时的速度
+     */
+    public float getVelocity(float seconds) {
+        return mV0 * (float) Math.exp(-Math.max(0, seconds) / mTau);
+    }
+
+    /**
+     * 经过 position 时的速度，和方向相同；position 在落点之外（到不了）时返回 0
+     */
+    public float getVelocityAt(float position) {
+        final float velocity = mV0 - (position - mStart) / mTau;
+        return velocity * mV0 > 0 ? velocity : 0;
+    }
+}
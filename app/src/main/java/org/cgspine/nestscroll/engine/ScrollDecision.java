@@ -0,0 +1,79 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 拖动和嵌套滚动时每一段位移由谁来吃的判断，只依赖 {@link OffsetEngine} 的偏移量和列表的滚动状态。
+ * 三个方案的容器和 benchmarks 都调用这里，判断逻辑只有这一份。
+ *
+ * dy 的方向：事件分发方案里是手指的位移，往下为正；嵌套滚动里是 View 的滚动量，和手指方向相反，往上滑为正。
+ */
+public final class ScrollDecision {
+
+    private ScrollDecision() {
+    }
+
+    // ---------- 事件分发方案 ----------
+
+    /**
+     * 手指按下之后往下拖了，或者 target 还没到结束位置，父 View 就可以开始拖动
+     *
+     * @param dyFromDown 手指相对按下位置的位移
+     */
+    public static boolean canStartDrag(OffsetEngine engine, float dyFromDown) {
+        return dyFromDown > 0 || engine.getConsumableUp() > 0;
+    }
+
+    /**
+     * 往上拖的这一段会到达或者越过 target 的结束位置
+     */
+    public static boolean reachesEnd(OffsetEngine engine, float dy) {
+        return dy < 0 && engine.getTargetCurrentOffset() + dy <= engine.getTargetEndOffset();
+    }
+
+    /**
+     * 这一段要不要把手势交给列表：会越过结束位置，并且列表往下还能滚。列表滚不动时父 View 停在结束位置继续持有手势
+     *
+     * @param childRemaining 列表往下还能滚动的距离
+     */
+    public static boolean shouldHandOff(OffsetEngine engine, float dy, int childRemaining) {
+        return childRemaining > 0 && reachesEnd(engine, dy);
+    }
+
+    /**
+     * 交接时转给列表的距离：结束位置之外的部分，列表最多只能吃掉它剩下的距离
+     *
+     * @param moved target 在这一段里实际移动的距离
+     * @return 转给列表的距离，和 dy 同号
+     */
+    public static int forwardedOnHandOff(int dy, int moved, int childRemaining) {
+        return Math.max(-childRemaining, dy - moved);
+    }
+
+    // ---------- 嵌套滚动方案 ----------
+
+    /**
+     * onNestedPreScroll：往上滑并且列表已经在顶部时，父 View 先收起
+     *
+     * @return target 要移动的距离（往上为负），0 表示全部留给列表
+     */
+    public static int preScrollTargetDelta(int dy, boolean childCanScrollUp) {
+        return dy > 0 && !childCanScrollUp ? -dy : 0;
+    }
+
+    /**
+     * onNestedScroll：往下滑时列表到顶之后吃不掉的部分给父 View 展开。
+     * 列表的 fling 只展开到初始位置，剩下的不消耗，列表的 fling 会因此停下来
+     *
+     * @return target 要移动的距离（往下为正），0 表示不接
+     */
+    public static int scrollTargetDelta(OffsetEngine engine, int dyUnconsumed, boolean childCanScrollUp,
+                                        boolean fling) {
+        if (dyUnconsumed >= 0 || childCanScrollUp) {
+            return 0;
+        }
+        int dy = -dyUnconsumed;
+        if (fling) {
+            dy = Math.min(dy, engine.getTargetInitOffset() - engine.getTargetCurrentOffset());
+        }
+        return Math.max(0, dy);
+    }
+}
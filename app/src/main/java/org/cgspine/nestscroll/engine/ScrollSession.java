@@ -0,0 +1,167 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 一次手势的汇总数据：处理了多少事件，父 View 消耗了多少、转给子 View 多少，交出去的 fling 速度，以及定位用了多久。
+ *
+ * 容器只持有一个实例，每次手势开始时 {@link #begin(long, int)}，结束时 {@link #end(long, int)} 之后交给
+ * {@link OnScrollSessionListener}。中间的累加都是基本类型运算，不做对象分配。
+ * 距离的单位都是 px，取绝对值累加；时间的单位是纳秒。
+ */
+public final class ScrollSession {
+    private boolean mActive;
+    private int mEventCount;
+    private int mConsumedByParent;
+    private int mForwardedToChild;
+    private int mTakenFromUnconsumed;
+    private float mFlingVelocity;
+    private long mStartNanos;
+    private long mReleaseNanos;
+    private long mEndNanos;
+    private int mStartOffset;
+    private int mEndOffset;
+
+    /**
+     * 开始一次手势，已经开始时什么都不做
+     */
+    public void begin(long nowNanos, int targetOffset) {
+        if (mActive) {
+            return;
+        }
+        reset();
+        mActive = true;
+        mStartNanos = nowNanos;
+        mStartOffset = targetOffset;
+    }
+
+    /**
+     * onNestedPreScroll：dy 里父 View 消耗了 consumed，剩下的转给子 View
+     */
+    public void onPreScroll(int dy, int consumed) {
+        if (!mActive) {
+            return;
+        }
+        mEventCount++;
+        mConsumedByParent += Math.abs(consumed);
+        mForwardedToChild += Math.abs(dy - consumed);
+    }
+
+    /**
+     * onNestedScroll：从子 View 没消耗完的 dyUnconsumed 里拿走了 taken
+     */
+    public void onScroll(int taken) {
+        if (!mActive) {
+            return;
+        }
+        mTakenFromUnconsumed += Math.abs(taken);
+    }
+
+    /**
+     * 事件分发方案的拖动：一个 move 事件里父 View 移动了 consumed，转给子 View forwarded
+     */
+    public void onDrag(int consumed, int forwarded) {
+        if (!mActive) {
+            return;
+        }
+        mEventCount++;
+        mConsumedByParent += Math.abs(consumed);
+        mForwardedToChild += Math.abs(forwarded);
+    }
+
+    /**
+     * 交给子 View 的 fling 速度（px/s），子 View 能报告吃掉了多少时只记吃掉的部分，多次交接时记录最后一次
+     */
+    public void onFlingHandedOff(float velocity) {
+        if (!mActive) {
+            return;
+        }
+        mFlingVelocity = velocity;
+    }
+
+    /**
+     * 手指抬起，从这里开始算定位时间
+     */
+    public void onRelease(long nowNanos) {
+        if (!mActive || mReleaseNanos != 0) {
+            return;
+        }
+        mReleaseNanos = nowNanos;
+    }
+
+    /**
+     * 结束这次手势
+     *
+     * @return 之前是否在进行中，调用方据此决定要不要回调
+     */
+    public boolean end(long nowNanos, int targetOffset) {
+        if (!mActive) {
+            return false;
+        }
+        mActive = false;
+        mEndNanos = nowNanos;
+        mEndOffset = targetOffset;
+        if (mReleaseNanos == 0) {
+            mReleaseNanos = nowNanos;
+        }
+        return true;
+    }
+
+    public void reset() {
+        mActive = false;
+        mEventCount = 0;
+        mConsumedByParent = 0;
+        mForwardedToChild = 0;
+        mTakenFromUnconsumed = 0;
+        mFlingVelocity = 0;
+        mStartNanos = 0;
+        mReleaseNanos = 0;
+        mEndNanos = 0;
+        mStartOffset = 0;
+        mEndOffset = 0;
+    }
+
+    public boolean isActive() {
+        return mActive;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    public int getConsumedByParent() {
+        return mConsumedByParent;
+    }
+
+    public int getForwardedToChild() {
+        return mForwardedToChild;
+    }
+
+    public int getTakenFromUnconsumed() {
+        return mTakenFromUnconsumed;
+    }
+
+    public float getFlingVelocity() {
+        return mFlingVelocity;
+    }
+
+    /**
+     * 从开始到结束的总时长
+     */
+    public long getDurationNanos() {
+        return mEndNanos - mStartNanos;
+    }
+
+    /**
+     * 从手指抬起到定位结束的时长
+     */
+    public long getSettleNanos() {
+        return mEndNanos - mReleaseNanos;
+    }
+
+    public int getStartOffset() {
+        return mStartOffset;
+    }
+
+    public int getEndOffset() {
+        return mEndOffset;
+    }
+}
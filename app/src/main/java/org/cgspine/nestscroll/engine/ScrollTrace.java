@@ -0,0 +1,163 @@
+package org.cgspine.nestscroll.engine;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * 滚动事件的追踪记录，用来替代每个事件都拼一次字符串的 Log.d / Log.i。
+ *
+ * 事件以基本类型写进预先分配好的环形缓冲区（类型、dy、消耗量、偏移量、时间戳），写满后覆盖最旧的记录，
+ * {@link #record(int, int, int, int)} 不做任何对象分配。需要排查问题时再调用
+ * {@link #dumpBinary(DataOutput)} 或 {@link #dumpText(Appendable)} 把缓冲区导出来。
+ *
+ * 调用方统一写成 {@code if (ScrollTrace.ENABLED) mTrace.record(...)}，{@link #ENABLED} 为 false 时
+ * javac 会把整个分支去掉，线上包里没有任何开销。
+ */
+public final class ScrollTrace {
+    /**
+     * 总开关，调试时改成 true
+     */
+    public static final boolean ENABLED = false;
+    /**
+     * 默认容量，必须是 2 的幂
+     */
+    public static final int DEFAULT_CAPACITY = 512;
+
+    public static final int KIND_INTERCEPT_DOWN = 1;
+    public static final int KIND_INTERCEPT_MOVE = 2;
+    public static final int KIND_INTERCEPT_UP = 3;
+    public static final int KIND_INTERCEPT_SKIP = 4;
+    public static final int KIND_DRAG = 5;
+    public static final int KIND_DRAG_HANDOFF = 6;
+    public static final int KIND_DRAG_RELEASE = 7;
+    public static final int KIND_START_NESTED_SCROLL = 8;
+    public static final int KIND_NESTED_PRE_SCROLL = 9;
+    public static final int KIND_NESTED_SCROLL = 10;
+    public static final int KIND_NESTED_PRE_FLING = 11;
+    public static final int KIND_STOP_NESTED_SCROLL = 12;
+
+    /**
+     * 二进制导出格式的版本号，格式有变化时加一
+     */
+    private static final int BINARY_VERSION = 1;
+
+    private final int mMask;
+    private final int[] mKinds;
+    private final int[] mDys;
+    private final int[] mConsumed;
+    private final int[] mOffsets;
+    private final long[] mTimes;
+    /**
+     * 一共写入过多少条记录，下一条写在 mWriteCount & mMask 的位置
+     */
+    private long mWriteCount;
+
+    public ScrollTrace(int capacity) {
+        if (capacity <= 0 || (capacity & (capacity - 1)) != 0) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        mMask = capacity - 1;
+        mKinds = new int[capacity];
+        mDys = new int[capacity];
+        mConsumed = new int[capacity];
+        mOffsets = new int[capacity];
+        mTimes = new long[capacity];
+    }
+
+    /**
+     * 记录一条事件
+     *
+     * @param kind     事件类型，KIND_* 之一
+     * @param dy       这次事件带来的位移
+     * @param consumed 父 View 消耗掉的位移，没有意义时传 0
+     * @param offset   处理完这次事件之后 target 的偏移量
+     */
+    public void record(int kind, int dy, int consumed, int offset) {
+        final int index = (int) (mWriteCount & mMask);
+        mKinds[index] = kind;
+        mDys[index] = dy;
+        mConsumed[index] = consumed;
+        mOffsets[index] = offset;
+        mTimes[index] = System.nanoTime();
+        mWriteCount++;
+    }
+
+    /**
+     * 当前缓冲区里有效的记录数
+     */
+    public int size() {
+        return (int) Math.min(mWriteCount, mMask + 1);
+    }
+
+    public void clear() {
+        mWriteCount = 0;
+    }
+
+    /**
+     * 按时间从旧到新导出二进制：版本号、记录数，然后每条记录依次是 kind、dy、consumed、offset、timeNanos
+     */
+    public void dumpBinary(DataOutput out) throws IOException {
+        final int size = size();
+        out.writeInt(BINARY_VERSION);
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            final int index = (int) ((mWriteCount - size + i) & mMask);
+            out.writeInt(mKinds[index]);
+            out.writeInt(mDys[index]);
+            out.writeInt(mConsumed[index]);
+            out.writeInt(mOffsets[index]);
+            out.writeLong(mTimes[index]);
+        }
+    }
+
+    /**
+     * 按时间从旧到新导出可读文本，每条记录一行，时间是相对第一条记录的微秒数
+     */
+    public void dumpText(Appendable out) throws IOException {
+        final int size = size();
+        if (size == 0) {
+            return;
+        }
+        final long startTime = mTimes[(int) ((mWriteCount - size) & mMask)];
+        for (int i = 0; i < size; i++) {
+            final int index = (int) ((mWriteCount - size + i) & mMask);
+            out.append(String.valueOf((mTimes[index] - startTime) / 1000)).append("us ")
+                    .append(kindToString(mKinds[index]))
+                    .append(" dy=").append(String.valueOf(mDys[index]))
+                    .append(" consumed=").append(String.valueOf(mConsumed[index]))
+                    .append(" offset=").append(String.valueOf(mOffsets[index]))
+                    .append('\n');
+        }
+    }
+
+    public static String kindToString(int kind) {
+        switch (kind) {
+            case KIND_INTERCEPT_DOWN:
+                return "INTERCEPT_DOWN";
+            case KIND_INTERCEPT_MOVE:
+                return "INTERCEPT_MOVE";
+            case KIND_INTERCEPT_UP:
+                return "INTERCEPT_UP";
+            case KIND_INTERCEPT_SKIP:
+                return "INTERCEPT_SKIP";
+            case KIND_DRAG:
+                return "DRAG";
+            case KIND_DRAG_HANDOFF:
+                return "DRAG_HANDOFF";
+            case KIND_DRAG_RELEASE:
+                return "DRAG_RELEASE";
+            case KIND_START_NESTED_SCROLL:
+                return "START_NESTED_SCROLL";
+            case KIND_NESTED_PRE_SCROLL:
+                return "NESTED_PRE_SCROLL";
+            case KIND_NESTED_SCROLL:
+                return "NESTED_SCROLL";
+            case KIND_NESTED_PRE_FLING:
+                return "NESTED_PRE_FLING";
+            case KIND_STOP_NESTED_SCROLL:
+                return "STOP_NESTED_SCROLL";
+            default:
+                return "UNKNOWN(" + kind + ")";
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 松手之后的定位动画：用临界阻尼弹簧代替「和中点比较 + 固定时长的 startScroll」。
+ *
+ * 1. 先按松手速度预测落点（{@link #predictLanding(int, float)}），离落点近的那一端作为停靠点，
+ *    快速往上甩即使还没过中点也会收起，反之亦然；
+ * 2. 再以当前位置、当前速度为初值跑一个临界阻尼弹簧，位移 x(t) = (x0 + (v0 + ωx0)t)e^{-ωt}（相对停靠点），
+ *    t = 0 时速度正好是 v0，松手瞬间没有速度突变，也不会来回振荡。
+ *
+ * 纯 Java 实现，按经过的时间求解析解，和帧率无关，可以直接在 JVM 上测出需要多少帧停下来。
+ * 速度的单位是 px/s，正数表示偏移量变大（往下）。
+ */
+public final class SpringSettler {
+    /**
+     * 默认刚度，和 SpringForce.STIFFNESS_MEDIUM 一致，质量为 1 时 ω = sqrt(stiffness)
+     */
+    public static final float DEFAULT_STIFFNESS = 1500f;
+    /**
+     * 预测落点时速度的投影时间：落点 = 当前位置 + 速度 * 投影时间
+     */
+    public static final float DEFAULT_PROJECTION_SECONDS = 0.2f;
+    /**
+     * 离停靠点小于这个距离（px）并且速度小于 {@link #REST_VELOCITY} 时认为已经停下
+     */
+    private static final float REST_DISPLACEMENT = 0.5f;
+    private static final float REST_VELOCITY = 10f;
+
+    private final float mOmega;
+    private final float mProjectionSeconds;
+
+    private int mAnchor;
+    private float mX0;
+    private float mV0;
+    private float mPosition;
+    private float mVelocity;
+    private boolean mAtRest = true;
+
+    public SpringSettler() {
+        this(DEFAULT_STIFFNESS, DEFAULT_PROJECTION_SECONDS);
+    }
+
+    public SpringSettler(float stiffness, float projectionSeconds) {
+        if (stiffness <= 0) {
+            throw new IllegalArgumentException("stiffness must be positive: " + stiffness);
+        }
+        mOmega = (float) Math.sqrt(stiffness);
+        mProjectionSeconds = projectionSeconds;
+    }
+
+    /**
+     * 按速度预测松手之后会停在哪里
+     */
+    public float predictLanding(int position, float velocity) {
+        return position + velocity * mProjectionSeconds;
+    }
+
+    /**
+     * 选择停靠点：离预测落点近的那一端，距离相等时收起（和原来中点比较的规则一致）
+     */
+    public int chooseAnchor(int position, float velocity, int initOffset, int endOffset) {
+        final float landing = predictLanding(position, velocity);
+        return Math.abs(landing - initOffset) < Math.abs(landing - endOffset) ? initOffset : endOffset;
+    }
+
+    /**
+     * 从 position 以 velocity 的初速度开始向 anchor 运动
+     */
+    public void start(int position, float velocity, int anchor) {
+        mAnchor = anchor;
+        mX0 = position - anchor;
+        mV0 = velocity;
+        mPosition = position;
+        mVelocity = velocity;
+        mAtRest = isAtRest(mX0, mV0);
+        if (mAtRest) {
+            mPosition = anchor;
+            mVelocity = 0;
+        }
+    }
+
+    /**
+     * 求开始之后 seconds 秒时的位置和速度
+     *
+     * @return 是否还在运动，返回 false 时位置已经对齐到停靠点
+     */
+    public boolean update(float seconds) {
+        if (mAtRest) {
+            return false;
+        }
+        if (seconds < 0) {
+            seconds = 0;
+        }
+        final float w = mOmega;
+        final float b = mV0 + w * mX0;
+        final float decay = (float) Math.exp(-w * seconds);
+        final float x = (mX0 + b * seconds) * decay;
+        final float v = (mV0 - w * b * seconds) * decay;
+        if (isAtRest(x, v)) {
+            mAtRest = true;
+            mPosition = mAnchor;
+            mVelocity = 0;
+            return false;
+        }
+        mPosition = mAnchor + x;
+        mVelocity = v;
+        return true;
+    }
+
+    private static boolean isAtRest(float displacement, float velocity) {
+        return Math.abs(displacement) < REST_DISPLACEMENT && Math.abs(velocity) < REST_VELOCITY;
+    }
+
+    /**
+     * 当前位置，四舍五入到像素
+     */
+    public int getPosition() {
+        return Math.round(mPosition);
+    }
+
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * 最近一次 {@link #start(int, float, int)} 的初速度，px/s
+     */
+    public float getStartVelocity() {
+        return mV0;
+    }
+
+    public int getAnchor() {
+        return mAnchor;
+    }
+
+    public boolean isAtRest() {
+        return mAtRest;
+    }
+}
@@ -0,0 +1,109 @@
+package org.cgspine.nestscroll.engine;
+
+/**
+ * 用来替代每次手势都 obtain / recycle 的 VelocityTracker 的速度估算器。
+ *
+ * 采样点（时间、位置）写进预先分配好的环形数组，由容器在整个生命周期里持有，手势开始时 {@link #clear()} 一下即可，
+ * 不做任何对象分配。{@link #computeVelocity(float)} 对最近 {@link #HORIZON_MS} 毫秒内的采样点做最小二乘直线拟合，
+ * 斜率就是速度；调用方应该把 MotionEvent 的历史采样点（getHistoricalY）也喂进来，拟合的点越多越准。
+ * 相邻两个采样点间隔超过 {@link #ASSUME_STOPPED_MS} 时认为手指中途停过，更早的点不再参与计算，
+ * 所以停顿之后再松手不会 fling。
+ *
+ * 位置可以是任意单调累加的量：手指的 y、嵌套滚动累加的 dy 都可以，换手指时调用方只要保证位置连续即可。
+ */
+public final class VelocityEstimator {
+    public static final int DEFAULT_CAPACITY = 20;
+    /**
+     * 只用最近这么多毫秒内的采样点
+     */
+    public static final long HORIZON_MS = 100;
+    /**
+     * 相邻采样点间隔超过这个值认为手指停过
+     */
+    public static final long ASSUME_STOPPED_MS = 40;
+
+    private final long[] mTimes;
+    private final float[] mPositions;
+    /**
+     * 最新的采样点所在的下标
+     */
+    private int mIndex = -1;
+    private int mSize;
+
+    public VelocityEstimator(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2: " + capacity);
+        }
+        mTimes = new long[capacity];
+        mPositions = new float[capacity];
+    }
+
+    public void clear() {
+        mIndex = -1;
+        mSize = 0;
+    }
+
+    /**
+     * @param timeMs   采样时间，毫秒，必须单调不减
+     * @param position 采样时的位置，px
+     */
+    public void addSample(long timeMs, float position) {
+        mIndex = (mIndex + 1) % mTimes.length;
+        mTimes[mIndex] = timeMs;
+        mPositions[mIndex] = position;
+        if (mSize < mTimes.length) {
+            mSize++;
+        }
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * @param maxVelocity 速度的绝对值上限，px/s
+     * @return 估算出的速度，px/s，采样点不够时返回 0
+     */
+    public float computeVelocity(float maxVelocity) {
+        if (mSize < 2) {
+            return 0;
+        }
+        final int capacity = mTimes.length;
+        final long newestTime = mTimes[mIndex];
+        // 第一遍：确定参与拟合的采样点个数并求均值，时间用相对最新采样点的毫秒数
+        int count = 0;
+        double sumT = 0;
+        double sumX = 0;
+        long previousTime = newestTime;
+        for (int i = 0; i < mSize; i++) {
+            final int index = (mIndex - i + capacity) % capacity;
+            final long time = mTimes[index];
+            if (newestTime - time > HORIZON_MS || previousTime - time > ASSUME_STOPPED_MS) {
+                break;
+            }
+            sumT += time - newestTime;
+            sumX += mPositions[index];
+            previousTime = time;
+            count++;
+        }
+        if (count < 2) {
+            return 0;
+        }
+        final double meanT = sumT / count;
+        final double meanX = sumX / count;
+        // 第二遍：最小二乘求斜率
+        double covariance = 0;
+        double variance = 0;
+        for (int i = 0; i < count; i++) {
+            final int index = (mIndex - i + capacity) % capacity;
+            final double dt = (mTimes[index] - newestTime) - meanT;
+            covariance += dt * (mPositions[index] - meanX);
+            variance += dt * dt;
+        }
+        if (variance == 0) {
+            return 0;
+        }
+        final float velocity = (float) (covariance / variance * 1000);
+        return Math.max(-maxVelocity, Math.min(maxVelocity, velocity));
+    }
+}
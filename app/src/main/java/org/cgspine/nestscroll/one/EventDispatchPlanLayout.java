@@ -7,14 +7,26 @@ import androidx.core.view.ViewCompat;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.MotionEvent;
-import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.widget.Scroller;
 
+import org.cgspine.nestscroll.FrameMonitor;
+import org.cgspine.nestscroll.FrameScrollDriver;
+import org.cgspine.nestscroll.HardwareLayerHelper;
+import org.cgspine.nestscroll.LayerLayoutParams;
 import org.cgspine.nestscroll.R;
 import org.cgspine.nestscroll.Util;
+import org.cgspine.nestscroll.engine.GestureClassifier;
+import org.cgspine.nestscroll.engine.HeaderMapping;
+import org.cgspine.nestscroll.engine.LayerEngine;
+import org.cgspine.nestscroll.engine.OffsetEngine;
+import org.cgspine.nestscroll.engine.OnScrollSessionListener;
+import org.cgspine.nestscroll.engine.ScrollDecision;
+import org.cgspine.nestscroll.engine.ScrollSession;
+import org.cgspine.nestscroll.engine.ScrollTrace;
+import org.cgspine.nestscroll.engine.SpringSettler;
+import org.cgspine.nestscroll.engine.VelocityEstimator;
 
 /**
  * @author cginechen
@@ -24,6 +36,18 @@ import org.cgspine.nestscroll.Util;
 public class EventDispatchPlanLayout extends ViewGroup {
     private static final String TAG = "EventDispatchPlanLayout";
     private static final int INVALID_POINTER = -1;
+    /**
+     * 拖动交接的状态：还没有交接
+     */
+    private static final int HANDOFF_IDLE = 0;
+    /**
+     * 拖动交接的状态：正在把合成的 down 事件分发给列表
+     */
+    private static final int HANDOFF_DISPATCHING = 1;
+    /**
+     * 拖动交接的状态：这次拖动已经交给列表了，直到下一次开始拖动之前都不会再交接
+     */
+    private static final int HANDOFF_DONE = 2;
     /**
      * 头部 View 的 id
      */
@@ -42,44 +66,83 @@ public class EventDispatchPlanLayout extends ViewGroup {
     private View mTargetView;
     private ITargetView mTarget;
 
-    private int mTouchSlop;
-    /**
-     * 头部 View 初始的偏移量
-     */
-    private int mHeaderInitOffset;
-    /**
-     * 头部 View 当前的偏移量
-     */
-    private int mHeaderCurrentOffset;
-    /**
-     * 头部 View 结束位置的偏移量
-     */
-    private int mHeaderEndOffset = 0;
     /**
-     * 目标 View 初始的偏移量
+     * 判断这次手势是纵向拖动还是里面 ViewPager 的横向滑动，判定为纵向的那一刻就开始拖动，不再另外等一个 touch slop
      */
-    private int mTargetInitOffset;
+    private final GestureClassifier mGestureClassifier;
     /**
-     * 目标 View 当前的偏移量
+     * 头部 View 和目标 View 的偏移量都由它来维护
      */
-    private int mTargetCurrentOffset;
+    private OffsetEngine mOffsetEngine;
     /**
-     * 目标 View 结束位置的偏移量
+     * 事件追踪，只有打开 {@link ScrollTrace#ENABLED} 才会分配
      */
-    private int mTargetEndOffset = 0;
+    private final ScrollTrace mTrace = ScrollTrace.ENABLED ? new ScrollTrace(ScrollTrace.DEFAULT_CAPACITY) : null;
 
     private int mActivePointerId = INVALID_POINTER;
     private boolean mIsDragging;
+    private int mHandoffState = HANDOFF_IDLE;
     private float mInitialDownY;
-    private float mInitialMotionY;
+    private long mInitialDownTime;
     private float mLastMotionY;
+    /**
+     * 拼交接用的单指 down 事件，整个生命周期复用
+     */
+    private final MotionEvent.PointerProperties[] mHandoffProperties = {new MotionEvent.PointerProperties()};
+    private final MotionEvent.PointerCoords[] mHandoffCoords = {new MotionEvent.PointerCoords()};
 
-    private VelocityTracker mVelocityTracker;
+    /**
+     * 整个生命周期只有这一个，每次拖动开始时清空，不再每个手势 obtain / recycle 一个 VelocityTracker
+     */
+    private final VelocityEstimator mVelocityEstimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+    /**
+     * 喂给 mVelocityEstimator 的位置：活动手指位移的累加值，换手指时不会跳变
+     */
+    private float mVelocityPosition;
+    private float mVelocityLastY;
     private float mMaxVelocity;
 
-    private Scroller mScroller;
-    private boolean mNeedScrollToInitPos = false;
+    private FrameScrollDriver mScrollDriver;
     private boolean mNeedScrollToEndPos = false;
+    /**
+     * 帧耗时监控，设置了 listener 才会创建
+     */
+    private FrameMonitor mFrameMonitor;
+    /**
+     * 手势汇总，只有设置了 listener 才会开始记录
+     */
+    private final ScrollSession mScrollSession = new ScrollSession();
+    private OnScrollSessionListener mScrollSessionListener;
+    /**
+     * 测量缓存：上一次测量时交给子 View 的规格（已经扣掉 padding），内容区的和目标 View 的
+     */
+    private int mLastContentWidthSpec;
+    private int mLastContentHeightSpec;
+    private int mLastTargetWidthSpec;
+    private int mLastTargetHeightSpec;
+    private boolean mMeasureCacheValid = false;
+    /**
+     * 上一次布局之后有子 View 被重新测量过
+     */
+    private boolean mChildMeasuredSinceLayout = false;
+    /**
+     * 缓存的绘制顺序，getChildDrawingOrder 直接按下标读
+     */
+    private int[] mDrawingOrder = new int[0];
+    private boolean mDrawingOrderValid = false;
+    /**
+     * 头部 View 之外跟随目标 View 滚动的层，见 {@link LayerLayoutParams}。mLayerViews[i] 对应 mLayerEngine 的第 i 层
+     */
+    private final LayerEngine mLayerEngine;
+    private View[] mLayerViews = new View[0];
+    private int mLayerCount = 0;
+    // 增删子 View 或者换了头部 / 目标 View 之后才需要重新收集层
+    private boolean mLayersValid = false;
+    /**
+     * translation 模式：子 View 用 translationY 移动，滚动期间头部 View 提升为硬件层，见 {@link #setUseTranslation(boolean)}
+     */
+    private boolean mUseTranslation = false;
+    private final HardwareLayerHelper mHeaderLayerHelper = new HardwareLayerHelper();
 
     public EventDispatchPlanLayout(Context context) {
         this(context, null);
@@ -93,22 +156,21 @@ public class EventDispatchPlanLayout extends ViewGroup {
         // 获取目标 View 的 id
         mTargetViewId = array.getResourceId(R.styleable.EventDispatchPlanLayout_target_view, 0);
 
-        mHeaderInitOffset = array.getDimensionPixelSize(R.styleable.
+        int headerInitOffset = array.getDimensionPixelSize(R.styleable.
                 EventDispatchPlanLayout_header_init_offset, Util.dp2px(getContext(), 20));
-        mTargetInitOffset = array.getDimensionPixelSize(R.styleable.
+        int targetInitOffset = array.getDimensionPixelSize(R.styleable.
                 EventDispatchPlanLayout_target_init_offset, Util.dp2px(getContext(), 40));
-        mHeaderCurrentOffset = mHeaderInitOffset;
-        mTargetCurrentOffset = mTargetInitOffset;
+        mOffsetEngine = new OffsetEngine(targetInitOffset, 0, headerInitOffset, 0);
+        mLayerEngine = new LayerEngine(targetInitOffset, 0);
         array.recycle();
         // 允许改变子类绘制顺序
         ViewCompat.setChildrenDrawingOrderEnabled(this, true);
 
         final ViewConfiguration vc = ViewConfiguration.get(getContext());
         mMaxVelocity = vc.getScaledMaximumFlingVelocity();
-        mTouchSlop = Util.px2dp(context, vc.getScaledTouchSlop()); //系统的值是8dp,太大了。。。
+        mGestureClassifier = new GestureClassifier(vc.getScaledTouchSlop(), vc.getScaledMinimumFlingVelocity());
 
-        mScroller = new Scroller(getContext());
-        mScroller.setFriction(0.98f);
+        mScrollDriver = new FrameScrollDriver(getContext(), mScrollCallback);
     }
     // 在这里可以获取子 View
     @Override
@@ -121,6 +183,8 @@ public class EventDispatchPlanLayout extends ViewGroup {
             mTargetView = findViewById(mTargetViewId);
             ensureTarget();
         }
+        mDrawingOrderValid = false;
+        mLayersValid = false;
     }
 
     /**
@@ -144,6 +208,8 @@ public class EventDispatchPlanLayout extends ViewGroup {
         if (mHeaderView == null && mTargetView == null && getChildCount() >= 2) {
             mHeaderView = getChildAt(0);
             mTargetView = getChildAt(1);
+            mDrawingOrderValid = false;
+            mLayersValid = false;
             ensureTarget();
             return;
         }
@@ -152,23 +218,86 @@ public class EventDispatchPlanLayout extends ViewGroup {
 
     @Override
     protected int getChildDrawingOrder(int childCount, int i) {
+        // 每一帧都会走到这里，只读数组；增删子 View 或者换了头部 / 目标 View 时才重新计算
+        if (!mDrawingOrderValid || mDrawingOrder.length != childCount) {
+            rebuildDrawingOrder(childCount);
+        }
+        return mDrawingOrder[i];
+    }
+
+    /**
+     * 计算绘制顺序：头部 View 在目标 View 之后添加时，两者交换，保证目标 View 盖在头部上面
+     */
+    private void rebuildDrawingOrder(int childCount) {
         ensureHeaderViewAndScrollView();
+        if (mDrawingOrder.length != childCount) {
+            mDrawingOrder = new int[childCount];
+        }
+        for (int i = 0; i < childCount; i++) {
+            mDrawingOrder[i] = i;
+        }
         int headerIndex = indexOfChild(mHeaderView);
         int scrollIndex = indexOfChild(mTargetView);
-        if (headerIndex < scrollIndex) {
-            return i;
+        if (scrollIndex >= 0 && headerIndex > scrollIndex) {
+            mDrawingOrder[headerIndex] = scrollIndex;
+            mDrawingOrder[scrollIndex] = headerIndex;
         }
-        if (headerIndex == i) {
-            return scrollIndex;
-        } else if (scrollIndex == i) {
-            return headerIndex;
+        // 再按层的 z 稳定排序（插入排序，子 View 很少），z 相同的保持上面的顺序
+        for (int i = 1; i < childCount; i++) {
+            final int index = mDrawingOrder[i];
+            final int z = getLayerZ(index);
+            int j = i - 1;
+            while (j >= 0 && getLayerZ(mDrawingOrder[j]) > z) {
+                mDrawingOrder[j + 1] = mDrawingOrder[j];
+                j--;
+            }
+            mDrawingOrder[j + 1] = index;
         }
-        return i;
+        mDrawingOrderValid = true;
+    }
+
+    private int getLayerZ(int childIndex) {
+        return ((LayerLayoutParams) getChildAt(childIndex).getLayoutParams()).z;
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayerLayoutParams;
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateDefaultLayoutParams() {
+        return new LayerLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public ViewGroup.LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayerLayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return LayerLayoutParams.from(p);
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        mDrawingOrderValid = false;
+        mLayersValid = false;
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        mDrawingOrderValid = false;
+        mLayersValid = false;
     }
 
     @Override
     public void requestDisallowInterceptTouchEvent(boolean b) {
-        // 去掉默认行为，使得每个事件都会经过这个Layout
+        // 去掉默认行为，使得每个事件都会经过这个Layout；
+        // 和 ViewPager 之间谁处理这次手势由 mGestureClassifier 判断，判定为横向之后这次手势就不会再拦截
     }
 
     /**
@@ -180,15 +309,48 @@ public class EventDispatchPlanLayout extends ViewGroup {
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         ensureHeaderViewAndScrollView();
+        // 测量缓存按扣掉 padding 之后交给子 View 的规格判断：规格和 padding 都没变时，只重新测量请求过重新布局的子 View。
+        // 头部 View 和其余的层由 getChildMeasureSpec 从内容区的规格推出来，目标 View 固定为内容区的大小
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        final int contentWidthSpec = MeasureSpec.makeMeasureSpec(
+                Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding), MeasureSpec.getMode(widthMeasureSpec));
+        final int contentHeightSpec = MeasureSpec.makeMeasureSpec(
+                Math.max(0, MeasureSpec.getSize(heightMeasureSpec) - verticalPadding), MeasureSpec.getMode(heightMeasureSpec));
         // 不走 measureChild 方法，直接确定好测量规格，这种方式不会受targetView布局参数的影响了。
-        int scrollMeasureWidthSpec = MeasureSpec.makeMeasureSpec(
-                getMeasuredWidth() - getPaddingLeft() - getPaddingRight(), MeasureSpec.EXACTLY);
-        int scrollMeasureHeightSpec = MeasureSpec.makeMeasureSpec(
-                getMeasuredHeight() - getPaddingTop() - getPaddingBottom(), MeasureSpec.EXACTLY);
-        // 这行代码之后会调用 LinearLayout 的 onMeasure 方法，完成 TargetView 的测量。
-        mTargetView.measure(scrollMeasureWidthSpec, scrollMeasureHeightSpec);
-        measureChild(mHeaderView, widthMeasureSpec, heightMeasureSpec);
+        final int scrollMeasureWidthSpec = MeasureSpec.makeMeasureSpec(
+                getMeasuredWidth() - horizontalPadding, MeasureSpec.EXACTLY);
+        final int scrollMeasureHeightSpec = MeasureSpec.makeMeasureSpec(
+                getMeasuredHeight() - verticalPadding, MeasureSpec.EXACTLY);
+        final boolean specChanged = !mMeasureCacheValid
+                || contentWidthSpec != mLastContentWidthSpec || contentHeightSpec != mLastContentHeightSpec
+                || scrollMeasureWidthSpec != mLastTargetWidthSpec || scrollMeasureHeightSpec != mLastTargetHeightSpec;
+        if (specChanged || mTargetView.isLayoutRequested()) {
+            // 这行代码之后会调用 LinearLayout 的 onMeasure 方法，完成 TargetView 的测量。
+            mTargetView.measure(scrollMeasureWidthSpec, scrollMeasureHeightSpec);
+            mChildMeasuredSinceLayout = true;
+        }
+        if (specChanged || mHeaderView.isLayoutRequested()) {
+            measureChild(mHeaderView, widthMeasureSpec, heightMeasureSpec);
+            mChildMeasuredSinceLayout = true;
+        }
 //        measureChild(mTargetView, widthMeasureSpec, heightMeasureSpec);
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            if (child == mHeaderView || child == mTargetView
+                    || !((LayerLayoutParams) child.getLayoutParams()).isLayer) {
+                continue;
+            }
+            if (specChanged || child.isLayoutRequested()) {
+                measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+                mChildMeasuredSinceLayout = true;
+            }
+        }
+        mLastContentWidthSpec = contentWidthSpec;
+        mLastContentHeightSpec = contentHeightSpec;
+        mLastTargetWidthSpec = scrollMeasureWidthSpec;
+        mLastTargetHeightSpec = scrollMeasureHeightSpec;
+        mMeasureCacheValid = true;
     }
 
     /**
@@ -212,35 +374,116 @@ public class EventDispatchPlanLayout extends ViewGroup {
         final int childTop = getPaddingTop();
         final int childWidth = width - getPaddingLeft() - getPaddingRight();
         final int childHeight = height - getPaddingTop() - getPaddingBottom();
+        final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+        final int headerCurrentOffset = mOffsetEngine.getHeaderCurrentOffset();
+        // 刚测量过的子 View 必须重新布局，否则位置没变、也没请求重新布局的子 View 直接跳过
+        final boolean force = changed || mChildMeasuredSinceLayout;
+        mChildMeasuredSinceLayout = false;
         // 布局 targetView
-        mTargetView.layout(childLeft, childTop + mTargetCurrentOffset,
-                childLeft + childWidth, childTop + childHeight + mTargetCurrentOffset);
+        Util.layoutChildIfNeeded(mTargetView, childLeft, childTop + targetCurrentOffset,
+                childLeft + childWidth, childTop + childHeight + targetCurrentOffset, force);
         int refreshViewWidth = mHeaderView.getMeasuredWidth();
         int refreshViewHeight = mHeaderView.getMeasuredHeight();
         // 布局头部 View
-        mHeaderView.layout((width / 2 - refreshViewWidth / 2), mHeaderCurrentOffset,
-                (width / 2 + refreshViewWidth / 2), mHeaderCurrentOffset + refreshViewHeight);
+        Util.layoutChildIfNeeded(mHeaderView, (width / 2 - refreshViewWidth / 2), headerCurrentOffset,
+                (width / 2 + refreshViewWidth / 2), headerCurrentOffset + refreshViewHeight, force);
+        // 其余的层按各自的偏移量摆放
+        syncLayers();
+        for (int i = 0; i < mLayerCount; i++) {
+            final View layer = mLayerViews[i];
+            final LayerLayoutParams lp = (LayerLayoutParams) layer.getLayoutParams();
+            final int layerLeft = childLeft + lp.leftMargin;
+            final int layerTop = mLayerEngine.getLayerOffset(i) + lp.topMargin;
+            Util.layoutChildIfNeeded(layer, layerLeft, layerTop,
+                    layerLeft + layer.getMeasuredWidth(), layerTop + layer.getMeasuredHeight(), force);
+        }
+        if (mUseTranslation) {
+            // translation 模式下拖动累积的位移已经按当前偏移量折算进布局位置了
+            mTargetView.setTranslationY(0);
+            mHeaderView.setTranslationY(0);
+            for (int i = 0; i < mLayerCount; i++) {
+                mLayerViews[i].setTranslationY(0);
+            }
+        }
     }
 
 
+    /**
+     * 同步跟随滚动的层，只在布局时调用。偏移范围每次都同步（没变时什么都不做）；
+     * 层本身只在增删子 View、换了头部 / 目标 View 之后按 LayoutParams 重新收集，
+     * 所以改了某个层的 LayoutParams 要重新添加这个子 View 才会生效
+     */
+    private void syncLayers() {
+        mLayerEngine.setTargetOffsets(mOffsetEngine.getTargetInitOffset(), mOffsetEngine.getTargetEndOffset());
+        mLayerEngine.setTargetOffset(mOffsetEngine.getTargetCurrentOffset());
+        if (mLayersValid) {
+            return;
+        }
+        mLayerEngine.clearLayers();
+        final int count = getChildCount();
+        if (mLayerViews.length < count) {
+            mLayerViews = new View[count];
+        }
+        int layerCount = 0;
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final LayerLayoutParams lp = (LayerLayoutParams) child.getLayoutParams();
+            if (child == mHeaderView || child == mTargetView || !lp.isLayer) {
+                continue;
+            }
+            mLayerEngine.addLayer(lp.initOffset, lp.endOffset, lp.mapping);
+            mLayerViews[layerCount++] = child;
+        }
+        for (int i = layerCount; i < mLayerCount; i++) {
+            mLayerViews[i] = null;
+        }
+        mLayerCount = layerCount;
+        mLayersValid = true;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        final boolean handled = super.dispatchTouchEvent(ev);
+        final int action = ev.getActionMasked();
+        if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL)
+                && mHandoffState != HANDOFF_DISPATCHING && !mScrollDriver.isRunning()) {
+            // 手指抬起时会话才结束，中间交接给列表、再被拦截回来都算同一次手势；
+            // 松手之后还有定位动画的话，等动画结束时再结束
+            onScrollFinished();
+        }
+        return handled;
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
         ensureHeaderViewAndScrollView();
+        if (mHandoffState == HANDOFF_DISPATCHING) {
+            // 交接用的 down 事件，直接放行给列表，不再做一遍拦截判断
+            return false;
+        }
         // 获取多点触控的事件类型
         final int action = MotionEventCompat.getActionMasked(ev);
         int pointerIndex;
+        if (action == MotionEvent.ACTION_DOWN) {
+            // 不管走不走快路径，每次手势都重新判断方向
+            mGestureClassifier.reset(ev.getEventTime(), ev.getX(), ev.getY());
+        }
         // 不阻断事件的快路径：如果目标view可以往上滚动或者`EventDispatchPlanLayout`不是enabled
         if (!isEnabled() || mTarget.canChildScrollUp()) {
-            Log.d(TAG, "fast end onIntercept: isEnabled = " + isEnabled() + "; canChildScrollUp = "
-                    + mTarget.canChildScrollUp());
+            if (ScrollTrace.ENABLED) {
+                mTrace.record(ScrollTrace.KIND_INTERCEPT_SKIP, 0, 0, mOffsetEngine.getTargetCurrentOffset());
+            }
             return false;
         }
         switch (action) {
             case MotionEvent.ACTION_DOWN:
-                Log.d(TAG, "onInterceptTouchEvent: ACTION_DOWN");
+                if (ScrollTrace.ENABLED) {
+                    mTrace.record(ScrollTrace.KIND_INTERCEPT_DOWN, 0, 0, mOffsetEngine.getTargetCurrentOffset());
+                }
                 // 获取一个指针(手指)的唯一标识符ID，在手指按下和抬起之间ID始终不变。
                 mActivePointerId = ev.getPointerId(0);
                 mIsDragging = false; // down 事件不拦截
+                mHandoffState = HANDOFF_IDLE;
                 // 如果没有对应的 pointer id 的数据，那么获取到的 pointer index 就是 -1。
                 pointerIndex = ev.findPointerIndex(mActivePointerId);
                 if (pointerIndex < 0) {
@@ -248,10 +491,10 @@ public class EventDispatchPlanLayout extends ViewGroup {
                 }
                 // 在 down 的时候记录初始的 y 值
                 mInitialDownY = ev.getY(pointerIndex);
+                mInitialDownTime = ev.getEventTime();
                 break;
 
             case MotionEvent.ACTION_MOVE:
-                Log.d(TAG, "onInterceptTouchEvent: ACTION_MOVE");
                 pointerIndex = ev.findPointerIndex(mActivePointerId);
                 if (pointerIndex < 0) {
                     Log.e(TAG, "Got ACTION_MOVE event but have an invalid active pointer id.");
@@ -259,8 +502,17 @@ public class EventDispatchPlanLayout extends ViewGroup {
                 }
 
                 final float y = ev.getY(pointerIndex);
-                // 判断是否 dragging
-                startDragging(y);
+                // 判断是否 dragging，横向滑动和还没判断出方向时都不拦截
+                if (classifyGesture(ev, pointerIndex) == GestureClassifier.VERTICAL && !mIsDragging) {
+                    startDragging(y);
+                    if (mIsDragging) {
+                        dragOnIntercept(ev, pointerIndex, y);
+                    }
+                }
+                if (ScrollTrace.ENABLED) {
+                    mTrace.record(ScrollTrace.KIND_INTERCEPT_MOVE, (int) (y - mInitialDownY),
+                            mIsDragging ? 1 : 0, mOffsetEngine.getTargetCurrentOffset());
+                }
                 break;
 
             case MotionEventCompat.ACTION_POINTER_UP: // 有非主要的手指抬起(即抬起之后仍然有手指在屏幕上)。
@@ -270,12 +522,13 @@ public class EventDispatchPlanLayout extends ViewGroup {
 
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
-                Log.d(TAG, "onInterceptTouchEvent: " + MotionEvent.actionToString(action));
+                if (ScrollTrace.ENABLED) {
+                    mTrace.record(ScrollTrace.KIND_INTERCEPT_UP, 0, 0, mOffsetEngine.getTargetCurrentOffset());
+                }
                 mIsDragging = false;
                 mActivePointerId = INVALID_POINTER;
                 break;
         }
-        Log.d(TAG, "onInterceptTouchEvent: mIsDragging = " + mIsDragging);
         return mIsDragging;
     }
 
@@ -286,18 +539,15 @@ public class EventDispatchPlanLayout extends ViewGroup {
         int pointerIndex;
 
         if (!isEnabled() || mTarget.canChildScrollUp()) {
-            Log.d(TAG, "fast end onTouchEvent: isEnabled = " + isEnabled() + "; canChildScrollUp = "
-                    + mTarget.canChildScrollUp());
             return false;
         }
 
-        acquireVelocityTracker(ev);
-
         switch (action) {
             case MotionEvent.ACTION_DOWN:
                 // 获取一个指针(手指)的唯一标识符ID，在手指按下和抬起之间ID始终不变。
                 mActivePointerId = ev.getPointerId(0);
                 mIsDragging = false;
+                mGestureClassifier.reset(ev.getEventTime(), ev.getX(), ev.getY());
                 break;
 
             case MotionEvent.ACTION_MOVE: {
@@ -308,26 +558,43 @@ public class EventDispatchPlanLayout extends ViewGroup {
                     return false;
                 }
                 final float y = ev.getY(pointerIndex);
-                startDragging(y);
+                if (classifyGesture(ev, pointerIndex) == GestureClassifier.VERTICAL) {
+                    startDragging(y);
+                }
 
                 if (mIsDragging) {
+                    // 只在拖动时采样
+                    addVelocitySamples(ev, pointerIndex);
                     float dy = y - mLastMotionY;
                     if (dy >= 0) { // 是从上向下的拖动
-                        Log.d(TAG, "onTouchEvent: dy >= 0, 是从上向下的拖动");
-                        moveTargetView(dy);
+                        final int moved = moveTargetView(dy);
+                        mScrollSession.onDrag(moved, 0);
+                        if (ScrollTrace.ENABLED) {
+                            mTrace.record(ScrollTrace.KIND_DRAG, (int) dy, moved,
+                                    mOffsetEngine.getTargetCurrentOffset());
+                        }
                     } else { // 是从下向上的拖动
-                        Log.d(TAG, "onTouchEvent: dy < 0, 是从下向上的拖动");
-                        if (mTargetCurrentOffset + dy <= mTargetEndOffset) {
-                            Log.d(TAG, "onTouchEvent: target 已经到达顶部了，重新dispatch一次down事件，使得列表可以继续滚动");
+                        // 列表往下还能滚动的距离，为 0 时交给列表也滚不动，父 View 停在结束位置继续持有手势
+                        final int childRemaining = mTarget.getScrollRange() - mTarget.getScrollOffset();
+                        if (ScrollDecision.shouldHandOff(mOffsetEngine, dy, childRemaining)) {
                             // 已经到达目标 View 的结束偏移位置（到达顶部了）
-                            moveTargetView(dy);
-                            // 重新dispatch一次down事件，使得列表可以继续滚动
-                            int oldAction = ev.getAction();
-                            ev.setAction(MotionEvent.ACTION_DOWN);
-                            dispatchTouchEvent(ev);
-                            ev.setAction(oldAction);
+                            final int moved = moveTargetView(dy);
+                            // 结束位置之外的部分交给了列表，列表最多只能吃掉它剩下的距离
+                            mScrollSession.onDrag(moved, ScrollDecision.forwardedOnHandOff((int) dy, moved, childRemaining));
+                            if (ScrollTrace.ENABLED) {
+                                mTrace.record(ScrollTrace.KIND_DRAG_HANDOFF, (int) dy, moved,
+                                        mOffsetEngine.getTargetCurrentOffset());
+                            }
+                            // 把手势交给列表，使得列表可以继续滚动
+                            handOffDragToTarget(ev, y);
+                            return true;
                         } else {
-                            moveTargetView(dy);
+                            final int moved = moveTargetView(dy);
+                            mScrollSession.onDrag(moved, 0);
+                            if (ScrollTrace.ENABLED) {
+                                mTrace.record(ScrollTrace.KIND_DRAG, (int) dy, moved,
+                                        mOffsetEngine.getTargetCurrentOffset());
+                            }
                         }
                     }
                     mLastMotionY = y;
@@ -341,6 +608,7 @@ public class EventDispatchPlanLayout extends ViewGroup {
                     return false;
                 }
                 mActivePointerId = ev.getPointerId(pointerIndex);
+                mVelocityLastY = ev.getY(pointerIndex);
                 break;
             }
 
@@ -357,73 +625,152 @@ public class EventDispatchPlanLayout extends ViewGroup {
 
                 if (mIsDragging) {
                     mIsDragging = false;
-                    mVelocityTracker.computeCurrentVelocity(1000, mMaxVelocity);
-                    final float vy = mVelocityTracker.getYVelocity(mActivePointerId);
+                    addVelocitySamples(ev, pointerIndex);
+                    mScrollSession.onRelease(System.nanoTime());
+                    final float vy = mVelocityEstimator.computeVelocity(mMaxVelocity);
                     finishDrag((int) vy);
                 }
                 mActivePointerId = INVALID_POINTER;
-                releaseVelocityTracker();
                 return false;
             }
             case MotionEvent.ACTION_CANCEL:
-                releaseVelocityTracker();
                 return false;
         }
 
         return mIsDragging;
     }
 
-    private void acquireVelocityTracker(final MotionEvent event) {
-        if (null == mVelocityTracker) {
-            mVelocityTracker = VelocityTracker.obtain();
+    /**
+     * 把当前的拖动交给列表：用一个从 MotionEvent 池里取出来的 down 事件走一遍分发，让列表成为 touch target，
+     * 之后的 move 事件就走正常的分发流程直接到达列表。
+     * 调用方的事件不会被改动，同一次拖动只会交接一次。
+     */
+    private void handOffDragToTarget(MotionEvent ev, float y) {
+        if (mHandoffState != HANDOFF_IDLE) {
+            return;
+        }
+        mIsDragging = false;
+        // 交接点就是新的起点，之后往下拖还可以重新被拦截
+        mInitialDownY = y;
+        mInitialDownTime = ev.getEventTime();
+        // 方向也从交接点重新判断，手指在交接点附近的抖动不会马上又被拦截回来
+        int pointerIndex = ev.findPointerIndex(mActivePointerId);
+        if (pointerIndex < 0) {
+            pointerIndex = 0;
         }
-        mVelocityTracker.addMovement(event);
+        mGestureClassifier.reset(mInitialDownTime, ev.getX(pointerIndex), y);
+        mHandoffState = HANDOFF_DISPATCHING;
+        // 交接用的 down 只带正在拖动的那根手指，别的手指不能作为列表的起点。
+        // 手指的 id 也照搬过来，多指时列表之后在 move 里跟的还是这根手指
+        ev.getPointerProperties(pointerIndex, mHandoffProperties[0]);
+        ev.getPointerCoords(pointerIndex, mHandoffCoords[0]);
+        final MotionEvent down = MotionEvent.obtain(ev.getDownTime(), ev.getEventTime(), MotionEvent.ACTION_DOWN,
+                1, mHandoffProperties, mHandoffCoords, ev.getMetaState(), ev.getButtonState(),
+                ev.getXPrecision(), ev.getYPrecision(), ev.getDeviceId(), ev.getEdgeFlags(), ev.getSource(),
+                ev.getFlags());
+        dispatchTouchEvent(down);
+        down.recycle();
+        mHandoffState = HANDOFF_DONE;
+        // 会话不在这里结束：之后列表的滚动、往下拖时重新被拦截都还是同一次手势，抬起手指时才结束
     }
 
-    private void releaseVelocityTracker() {
-        if (null != mVelocityTracker) {
-            mVelocityTracker.clear();
-            mVelocityTracker.recycle();
-            mVelocityTracker = null;
+    /**
+     * 把这个事件连同它的历史采样点一起喂给 mVelocityEstimator
+     */
+    private void addVelocitySamples(MotionEvent ev, int pointerIndex) {
+        final int historySize = ev.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            addVelocitySample(ev.getHistoricalEventTime(h), ev.getHistoricalY(pointerIndex, h));
         }
+        addVelocitySample(ev.getEventTime(), ev.getY(pointerIndex));
+    }
+
+    /**
+     * 把这个 move 事件连同它的历史采样点一起交给 mGestureClassifier，已经判定过时直接返回结果
+     */
+    private int classifyGesture(MotionEvent ev, int pointerIndex) {
+        int decision = mGestureClassifier.getDecision();
+        if (decision != GestureClassifier.UNDECIDED) {
+            return decision;
+        }
+        final int historySize = ev.getHistorySize();
+        for (int h = 0; h < historySize && decision == GestureClassifier.UNDECIDED; h++) {
+            decision = mGestureClassifier.addSample(ev.getHistoricalEventTime(h),
+                    ev.getHistoricalX(pointerIndex, h), ev.getHistoricalY(pointerIndex, h));
+        }
+        if (decision == GestureClassifier.UNDECIDED) {
+            decision = mGestureClassifier.addSample(ev.getEventTime(), ev.getX(pointerIndex), ev.getY(pointerIndex));
+        }
+        return decision;
+    }
+
+    private void addVelocitySample(long timeMs, float y) {
+        mVelocityPosition += y - mVelocityLastY;
+        mVelocityLastY = y;
+        mVelocityEstimator.addSample(timeMs, mVelocityPosition);
     }
 
     private void finishDrag(int vy) {
-        Log.i(TAG, "TouchUp: vy = " + vy);
-        if (vy > 0) { // 速率为正，是从上到下
-            mNeedScrollToInitPos = true;
-            mScroller.fling(0, mTargetCurrentOffset, 0, vy,
-                    0, 0, mTargetEndOffset, Integer.MAX_VALUE);
-            invalidate();
-        } else if (vy < 0) { // 速率为负，是从下到上
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_DRAG_RELEASE, vy, 0, mOffsetEngine.getTargetCurrentOffset());
+        }
+        final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+        final int targetEndOffset = mOffsetEngine.getTargetEndOffset();
+        final SpringSettler spring = mScrollDriver.getSpringSettler();
+        if (vy < 0 && spring.predictLanding(targetCurrentOffset, vy) <= targetEndOffset) {
+            // 往上甩并且会越过结束位置：按和预测落点一致的距离滑到结束位置，剩下的速度在 settle() 里交给列表
             mNeedScrollToEndPos = true;
-            mScroller.fling(0, mTargetCurrentOffset, 0, vy,
-                    0, 0, mTargetEndOffset, Integer.MAX_VALUE);
-            invalidate();
+            mScrollDriver.flingToBound(targetCurrentOffset, vy, targetEndOffset);
         } else {
-            if (mTargetCurrentOffset <= (mTargetEndOffset + mTargetInitOffset) / 2) {
-                mNeedScrollToEndPos = true;
-            } else {
-                mNeedScrollToInitPos = true;
-            }
-            invalidate();
+            // 按松手速度预测落点选择停靠的一端，弹簧从松手时的速度开始，没有速度突变
+            mScrollDriver.spring(targetCurrentOffset, vy,
+                    spring.chooseAnchor(targetCurrentOffset, vy, mOffsetEngine.getTargetInitOffset(), targetEndOffset));
         }
     }
 
     private void startDragging(float y) {
         // 当前的 y 比 mInitialDownY 大，表明是从上向下拖动
-        // mTargetCurrentOffset > mTargetEndOffset，表明当前 targetView 的偏移量还没有到达结束位置。
-        // 这两个条件满足一个就可以去判定是否是拖动状态
-        if (y > mInitialDownY || mTargetCurrentOffset > mTargetEndOffset) {
-            final float yDiff = Math.abs(y - mInitialDownY);
-            if (yDiff > mTouchSlop && !mIsDragging) {
-                mInitialMotionY = mInitialDownY + mTouchSlop;
-                mLastMotionY = mInitialMotionY;
-                mIsDragging = true;
+        // 父 View 还能向上消耗（getConsumableUp() > 0），表明当前 targetView 的偏移量还没有到达结束位置。
+        // 这两个条件满足一个，并且 mGestureClassifier 已经判定为纵向，就开始拖动
+        if (ScrollDecision.canStartDrag(mOffsetEngine, y - mInitialDownY) && !mIsDragging) {
+            // 起点就是按下的位置，按下之后走过的距离在这一个事件里全部生效，手指和内容之间没有落差
+            mLastMotionY = mInitialDownY;
+            mIsDragging = true;
+            mHandoffState = HANDOFF_IDLE;
+            // 速度也从按下的位置算起，之后喂进来的历史采样点是连续的
+            mVelocityEstimator.clear();
+            mVelocityPosition = 0;
+            mVelocityLastY = mInitialDownY;
+            mVelocityEstimator.addSample(mInitialDownTime, 0);
+            if (mScrollDriver.isRunning()) {
+                // 新的拖动打断正在进行的动画，上一次手势到此结束
+                mScrollDriver.stop();
+                onScrollFinished();
             }
+            mNeedScrollToEndPos = false;
+            // 同一次手势里交接之后又被拦截回来时会话已经开始了，这里不会再开一次
+            onScrollStarted();
         }
     }
 
+    /**
+     * 在拦截下来的这个事件里就开始跟手，不用等下一个事件到 onTouchEvent，第一像素的移动提前一帧。
+     * 会越过结束位置、需要把手势交给列表的那一段留给 onTouchEvent 处理，拦截过程中不做事件的重新分发
+     */
+    private void dragOnIntercept(MotionEvent ev, int pointerIndex, float y) {
+        final float dy = y - mLastMotionY;
+        if (ScrollDecision.reachesEnd(mOffsetEngine, dy)) {
+            return;
+        }
+        addVelocitySamples(ev, pointerIndex);
+        final int moved = moveTargetView(dy);
+        mScrollSession.onDrag(moved, 0);
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_DRAG, (int) dy, moved, mOffsetEngine.getTargetCurrentOffset());
+        }
+        mLastMotionY = y;
+    }
+
     private void onSecondaryPointerUp(MotionEvent ev) {
         final int pointerIndex = MotionEventCompat.getActionIndex(ev);
         final int pointerId = ev.getPointerId(pointerIndex);
@@ -432,69 +779,210 @@ public class EventDispatchPlanLayout extends ViewGroup {
             // active pointer and adjust accordingly.
             final int newPointerIndex = pointerIndex == 0 ? 1 : 0;
             mActivePointerId = ev.getPointerId(newPointerIndex);
+            // 速度按新手指继续累加
+            mVelocityLastY = ev.getY(newPointerIndex);
         }
     }
 
     /**
      * 按 dy 移动目标 View
      * @param dy
+     * @return 目标 View 实际移动的距离
      */
-    private void moveTargetView(float dy) {
-        int target = (int) (mTargetCurrentOffset + dy);
-        moveTargetViewTo(target);
+    private int moveTargetView(float dy) {
+        int target = (int) (mOffsetEngine.getTargetCurrentOffset() + dy);
+        return moveTargetViewTo(target);
     }
 
     /**
-     * 移动目标 View 到目标位置
+     * 移动目标 View 到目标位置，头部 View 的偏移量由 {@link OffsetEngine} 一并算出
      * @param target
+     * @return 目标 View 实际移动的距离
      */
-    private void moveTargetViewTo(int target) {
-        target = Math.max(target, mTargetEndOffset);
-        ViewCompat.offsetTopAndBottom(mTargetView, target - mTargetCurrentOffset);
-        mTargetCurrentOffset = target;
-        // 计算头部 View 的偏移量
-        int headerTarget;
-        if (mTargetCurrentOffset >= mTargetInitOffset) {
-            headerTarget = mHeaderInitOffset;
-        } else if (mTargetCurrentOffset <= mTargetEndOffset) {
-            headerTarget = mHeaderEndOffset;
-        } else {
-            float percent = (mTargetCurrentOffset - mTargetEndOffset) * 1.0f / (mTargetInitOffset - mTargetEndOffset);
-            headerTarget = (int) (mHeaderEndOffset + percent * (mHeaderInitOffset - mHeaderEndOffset));
+    private int moveTargetViewTo(int target) {
+        final int targetDelta = mOffsetEngine.applyAbsolute(target);
+        Util.moveChild(mTargetView, targetDelta, mUseTranslation);
+        if (mUseTranslation && mOffsetEngine.getHeaderDelta() != 0) {
+            // 头部第一次真的要移动时才提升为硬件层，没有移动头部的手势不用付出提升的代价；滚动结束时恢复
+            mHeaderLayerHelper.promote(mHeaderView);
+        }
+        Util.moveChild(mHeaderView, mOffsetEngine.getHeaderDelta(), mUseTranslation);
+        if (mLayerCount > 0) {
+            // 所有层一次算完，再一起移动
+            mLayerEngine.setTargetOffset(mOffsetEngine.getTargetCurrentOffset());
+            for (int i = 0; i < mLayerCount; i++) {
+                Util.moveChild(mLayerViews[i], mLayerEngine.getLayerDelta(i), mUseTranslation);
+            }
+        }
+        return targetDelta;
+    }
+
+    /**
+     * 设置 header 跟随 target 的曲线，默认是线性的，见 {@link HeaderMapping}
+     */
+    public void setHeaderMapping(HeaderMapping mapping) {
+        mOffsetEngine.setHeaderMapping(mapping);
+        if (mHeaderView != null) {
+            Util.moveChild(mHeaderView, mOffsetEngine.getHeaderDelta(), mUseTranslation);
+        }
+    }
+
+    /**
+     * 打开 translation 模式：头部、目标 View 和其余的层改用 translationY 移动，拖动和定位期间头部 View 提升为硬件层，
+     * 每一帧只更新 RenderNode 的属性，不用重新录制头部的 display list。
+     * 触摸事件的分发和父 View 的裁剪都会把 translation 算进去，所以点击区域和可见区域和原来一致。默认关闭
+     */
+    public void setUseTranslation(boolean useTranslation) {
+        if (mUseTranslation == useTranslation) {
+            return;
+        }
+        mUseTranslation = useTranslation;
+        if (!useTranslation) {
+            mHeaderLayerHelper.restore();
+            // 已经累积的 translationY 折算回布局位置
+            if (mTargetView != null) {
+                Util.foldTranslation(mTargetView);
+            }
+            if (mHeaderView != null) {
+                Util.foldTranslation(mHeaderView);
+            }
+            for (int i = 0; i < mLayerCount; i++) {
+                Util.foldTranslation(mLayerViews[i]);
+            }
+        }
+    }
+
+    public boolean isUseTranslation() {
+        return mUseTranslation;
+    }
+
+    /**
+     * 打开帧耗时监控：从开始拖动到定位动画结束，每次回调一份帧统计。传 null 关闭
+     */
+    public void setOnFrameStatsListener(FrameMonitor.Listener listener) {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
         }
-        ViewCompat.offsetTopAndBottom(mHeaderView, headerTarget - mHeaderCurrentOffset);
-        mHeaderCurrentOffset = headerTarget;
+        mFrameMonitor = listener == null ? null : new FrameMonitor(getContext(), listener);
     }
 
+    /**
+     * 设置手势汇总的回调，每次手势结束时回调一次。传 null 关闭
+     */
+    public void setOnScrollSessionListener(OnScrollSessionListener listener) {
+        mScrollSessionListener = listener;
+    }
+
+    /**
+     * 一次滚动开始：开始拖动。同一次手势里可以调用多次，只有第一次算数
+     */
+    private void onScrollStarted() {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.start();
+        }
+        if (mScrollSessionListener != null) {
+            mScrollSession.begin(System.nanoTime(), mOffsetEngine.getTargetCurrentOffset());
+        }
+    }
+
+    /**
+     * 一次滚动结束：定位动画结束，或者没有动画可做
+     */
+    private void onScrollFinished() {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+        mHeaderLayerHelper.restore();
+        if (mScrollSession.end(System.nanoTime(), mOffsetEngine.getTargetCurrentOffset())
+                && mScrollSessionListener != null) {
+            mScrollSessionListener.onScrollSession(mScrollSession);
+        }
+        mScrollSession.reset();
+    }
+
+    /**
+     * 调试用的事件追踪，{@link ScrollTrace#ENABLED} 为 false 时返回 null
+     */
+    public ScrollTrace getScrollTrace() {
+        return mTrace;
+    }
+
+    /**
+     * 最近一次手势的方向判定，可以读出从按下到判定用了多少毫秒
+     */
+    public GestureClassifier getGestureClassifier() {
+        return mGestureClassifier;
+    }
+
+    /**
+     * 目标 View 的滚动状态由它自己在滚动时增量维护，父 View 每个事件都可能读，实现里只能返回缓存的值，不要去遍历子 View
+     */
     public interface ITargetView {
+        /**
+         * 等价于 getScrollOffset() > 0
+         */
         boolean canChildScrollUp();
 
-        void fling(float vy);
+        /**
+         * 已经滚动的距离，px，也就是离顶部还有多远，0 表示在顶部
+         */
+        int getScrollOffset();
+
+        /**
+         * 最大的滚动距离，px，内容不满一屏时是 0
+         */
+        int getScrollRange();
+
+        /**
+         * 接着父 View 的 fling 继续惯性滑动
+         *
+         * @param vy 手指方向的速度，px/s，往上甩为负
+         * @return 没有被吃掉的速度，和 vy 同号；子 View 滚到边缘之后剩下的、或者根本滚不动时原样返回
+         */
+        float fling(float vy);
     }
 
     @Override
-    public void computeScroll() {
-        if (mScroller.computeScrollOffset()) {
-            int offsetY = mScroller.getCurrY();
-            moveTargetViewTo(offsetY);
-            invalidate();
-        } else if (mNeedScrollToInitPos) {
-            mNeedScrollToInitPos = false;
-            if (mTargetCurrentOffset == mTargetInitOffset) {
-                return;
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mScrollDriver.stop();
+        onScrollFinished();
+    }
+
+    private final FrameScrollDriver.Callback mScrollCallback = new FrameScrollDriver.Callback() {
+        @Override
+        public void onScrollFrame(int offset) {
+            moveTargetViewTo(offset);
+        }
+
+        @Override
+        public void onScrollEnd() {
+            settle();
+            if (!mScrollDriver.isRunning()) {
+                onScrollFinished();
             }
-            mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetInitOffset - mTargetCurrentOffset);
-            invalidate();
-        } else if (mNeedScrollToEndPos) {
+        }
+    };
+
+    /**
+     * 往上 fling 结束之后：到达结束位置就把剩余速度交给列表，否则弹到结束位置
+     */
+    private void settle() {
+        final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+        if (mNeedScrollToEndPos) {
             mNeedScrollToEndPos = false;
-            if (mTargetCurrentOffset == mTargetEndOffset) {
-                if (mScroller.getCurrVelocity() > 0) {
-                    // 如果还有速度，则传递给子view
-                    mTarget.fling(-mScroller.getCurrVelocity());
+            if (targetCurrentOffset == mOffsetEngine.getTargetEndOffset()) {
+                final float velocity = -mScrollDriver.getCurrVelocity();
+                if (velocity < 0) {
+                    // 如果还有速度，则传递给子view，只记下子 view 实际吃掉的那部分；
+                    // 子 view 吃不掉的速度往上已经没有可以滚动的地方了，在这里结束
+                    final float unconsumed = mTarget.fling(velocity);
+                    mScrollSession.onFlingHandedOff(velocity - unconsumed);
                 }
+                return;
             }
-            mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetEndOffset - mTargetCurrentOffset);
-            invalidate();
+            // 没到结束位置就停了，带着剩下的速度弹过去
+            mScrollDriver.spring(targetCurrentOffset, -mScrollDriver.getCurrVelocity(), mOffsetEngine.getTargetEndOffset());
         }
     }
 }
@@ -3,19 +3,18 @@ package org.cgspine.nestscroll.one;
 import android.content.Context;
 import com.google.android.material.tabs.TabLayout;
 import androidx.viewpager.widget.PagerAdapter;
-import androidx.core.view.ViewCompat;
 import androidx.viewpager.widget.ViewPager;
 import android.util.AttributeSet;
-import android.util.SparseArray;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.view.ViewConfiguration;
 import android.widget.LinearLayout;
-import android.widget.ListView;
 
-import org.cgspine.nestscroll.R;
+import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
+import org.cgspine.nestscroll.R;
+import org.cgspine.nestscroll.RecyclerPageCache;
+import org.cgspine.nestscroll.engine.FlingModel;
 
 /**
  * 事件分发目标布局，继承于 LinearLayout，实现了 {@link EventDispatchPlanLayout.ITargetView}
@@ -32,20 +31,61 @@ public class EventDispatchTargetLayout extends LinearLayout
 
     private TabLayout mTabLayout;
     private ViewPager mViewPager;
-    private SparseArray<ListView> mPageMap = new SparseArray<>();
-    private ArrayList<String> mData = new ArrayList<>();
+    // 每一页的列表都要挂上滚动监听，用来更新缓存的滚动偏移量
+    private final RecyclerPageCache mPageCache = new RecyclerPageCache(getContext()) {
+        @Override
+        protected RecyclerView createPage(int position) {
+            RecyclerView recyclerView = super.createPage(position);
+            recyclerView.addOnScrollListener(mPageScrollListener);
+            return recyclerView;
+        }
+    };
+    /**
+     * 和 RecyclerView 一样的 fling 模型，交接 fling 时算出列表吃不掉的速度
+     */
+    private final FlingModel mFlingModel;
+    private final int mMaxFlingVelocity;
+    /**
+     * 当前页的列表的滚动偏移量和最大偏移量。列表滚动时按 dy 累加，只有布局变化、翻页或者列表停下来时才真正查询一次列表，
+     * {@link #canChildScrollUp()}、{@link #getScrollOffset()}、{@link #getScrollRange()} 都只读这两个字段，
+     * 不再在每个触摸事件里去查询列表。
+     */
+    private int mScrollOffset = 0;
+    private int mScrollRange = 0;
+    private RecyclerView.OnScrollListener mPageScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+            // 只关心当前页，其它页滚动时不用更新
+            if (mViewPager == null || recyclerView != mPageCache.getActivePage(mViewPager.getCurrentItem())) {
+                return;
+            }
+            if (dy == 0) {
+                // 布局之后可见范围变了才会回调 (0, 0)，条目可能变了，重新查询
+                syncScrollState();
+            } else {
+                // 只截掉下限：列表的 mScrollRange 是按可见条目估出来的，条目高度不一时会比真正能滚的距离小，
+                // 在这里截到 mScrollRange 会把偏移量改错，要等停下来重新查询才能纠正
+                mScrollOffset = Math.max(0, mScrollOffset + dy);
+            }
+        }
 
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            if (newState != RecyclerView.SCROLL_STATE_IDLE
+                    || mViewPager == null || recyclerView != mPageCache.getActivePage(mViewPager.getCurrentItem())) {
+                return;
+            }
+            // 停下来之后按列表自己的值重新对齐一次，累加的误差不会带到下一次手势
+            syncScrollState();
+        }
+    };
 
-    private ListView getPageView(int pos) {
-        ListView view = mPageMap.get(pos);
-        if (view == null) {
-            ListView listView = new ListView(getContext());
-            listView.setAdapter(new ArrayAdapter<>(getContext(), android.R.layout.simple_list_item_1, mData));
-            mPageMap.put(pos, listView);
-            return listView;
+    private ViewPager.OnPageChangeListener mPageChangeListener = new ViewPager.SimpleOnPageChangeListener() {
+        @Override
+        public void onPageSelected(int position) {
+            syncScrollState();
         }
-        return view;
-    }
+    };
 
     public EventDispatchTargetLayout(Context context) {
         this(context, null);
@@ -53,6 +93,10 @@ public class EventDispatchTargetLayout extends LinearLayout
 
     public EventDispatchTargetLayout(Context context, AttributeSet attrs) {
         super(context, attrs);
+        mFlingModel = new FlingModel(getResources().getDisplayMetrics().density,
+                ViewConfiguration.getScrollFriction());
+        // RecyclerView 会把 fling 的速度截断到这个值
+        mMaxFlingVelocity = ViewConfiguration.get(context).getScaledMaximumFlingVelocity();
     }
 
     @Override
@@ -60,10 +104,8 @@ public class EventDispatchTargetLayout extends LinearLayout
         super.onFinishInflate();
         mTabLayout = (TabLayout) findViewById(R.id.tab_layout);
         mViewPager = (ViewPager) findViewById(R.id.viewpager);
-        for (int i = 0; i < 50; i++) {
-            mData.add("item " + i);
-        }
         mViewPager.setAdapter(mPagerAdapter);
+        mViewPager.addOnPageChangeListener(mPageChangeListener);
         mTabLayout.setupWithViewPager(mViewPager);
     }
 
@@ -80,7 +122,7 @@ public class EventDispatchTargetLayout extends LinearLayout
 
         @Override
         public Object instantiateItem(final ViewGroup container, int position) {
-            View view = getPageView(position);
+            View view = mPageCache.acquire(position);
             ViewGroup.LayoutParams params = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
             container.addView(view, params);
             return view;
@@ -88,6 +130,7 @@ public class EventDispatchTargetLayout extends LinearLayout
 
         @Override
         public void destroyItem(ViewGroup container, int position, Object object) {
+            mPageCache.release(position);
             container.removeView((View) object);
         }
 
@@ -96,42 +139,67 @@ public class EventDispatchTargetLayout extends LinearLayout
             return "item " + (position + 1);
         }
     };
-    // 判断 ViewPager 的子 View 是否可以向上滑动
     @Override
-    public boolean canChildScrollUp() {
-        if (mViewPager == null) {
-            return false;
-        }
-        int currentItem = mViewPager.getCurrentItem();
-        ListView listView = mPageMap.get(currentItem);
-        if (listView == null) {
-            return false;
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        super.onLayout(changed, l, t, r, b);
+        if (changed) {
+            // 尺寸变了，列表的可见高度和最大偏移量跟着变
+            syncScrollState();
         }
-        if (android.os.Build.VERSION.SDK_INT < 14) {
-            return listView.getChildCount() > 0
-                    && (listView.getFirstVisiblePosition() > 0 || listView.getChildAt(0)
-                    .getTop() < listView.getPaddingTop());
-        } else {
-            // 第二个参数 direction：Negative to check scrolling up, positive to check scrolling down.
-            return ViewCompat.canScrollVertically(listView, -1);
+    }
+
+    // 判断 ViewPager 的子 View 是否可以向上滑动，父 View 每个触摸事件都会调用，所以这里只读缓存
+    @Override
+    public boolean canChildScrollUp() {
+        return mScrollOffset > 0;
+    }
+
+    @Override
+    public int getScrollOffset() {
+        return mScrollOffset;
+    }
+
+    @Override
+    public int getScrollRange() {
+        return mScrollRange;
+    }
+
+    /**
+     * 重新查询当前页的列表的滚动偏移量和最大偏移量，只在布局变化、翻页或者列表停下来时调用
+     */
+    private void syncScrollState() {
+        RecyclerView recyclerView = mViewPager == null ? null : mPageCache.getActivePage(mViewPager.getCurrentItem());
+        if (recyclerView == null) {
+            mScrollOffset = 0;
+            mScrollRange = 0;
+            return;
         }
+        mScrollRange = Math.max(0,
+                recyclerView.computeVerticalScrollRange() - recyclerView.computeVerticalScrollExtent());
+        mScrollOffset = Math.max(0, recyclerView.computeVerticalScrollOffset());
     }
-    // 子 View 的惯性滑动
+
+    /**
+     * 子 View 的惯性滑动：交给当前页的 RecyclerView 去 fling，预取和回收都由它自己处理
+     *
+     * @return 列表滚到边缘之后剩下的速度，列表已经在边缘或者速度太小 fling 不起来时原样返回
+     */
     @Override
-    public void fling(float vy) {
+    public float fling(float vy) {
         if (mViewPager == null) {
-            return;
+            return vy;
         }
-        int currentItem = mViewPager.getCurrentItem();
-        ListView listView = mPageMap.get(currentItem);
-        if (listView == null) {
-            return;
+        RecyclerView recyclerView = mPageCache.getActivePage(mViewPager.getCurrentItem());
+        if (recyclerView == null || vy == 0) {
+            return vy;
         }
-        if(android.os.Build.VERSION.SDK_INT >= 21){
-            listView.fling((int) -vy);
-        }else {
-            // 可以调动第三方的实现，这里就先不管了
+        // vy 是手指的速度，往上甩（vy < 0）时列表的内容往下滚
+        final float velocity = Math.max(-mMaxFlingVelocity, Math.min(mMaxFlingVelocity, vy));
+        final int available = velocity < 0 ? mScrollRange - mScrollOffset : mScrollOffset;
+        if (available <= 0 || !recyclerView.fling(0, (int) -velocity)) {
+            return vy;
         }
-
+        // 超出上限的那部分列表也吃不掉
+        return vy - velocity + mFlingModel.getUnconsumedVelocity(velocity, available);
     }
 }
@@ -10,18 +10,15 @@ import com.google.android.material.tabs.TabLayout;
 import androidx.viewpager.widget.PagerAdapter;
 import androidx.viewpager.widget.ViewPager;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.recyclerview.widget.LinearLayoutManager;
-import androidx.recyclerview.widget.RecyclerView;
 import androidx.appcompat.widget.Toolbar;
 
-import android.util.SparseArray;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.LinearLayout;
 
-import org.cgspine.nestscroll.MyRecyclerAdapter;
 import org.cgspine.nestscroll.R;
+import org.cgspine.nestscroll.RecyclerPageCache;
 import org.cgspine.nestscroll.Util;
 
 /**
@@ -35,7 +32,7 @@ public class CoordinatorLayoutActivity extends AppCompatActivity {
     private LinearLayout mTargetLayout;
     private TabLayout mTabLayout;
     private ViewPager mViewPager;
-    private SparseArray<RecyclerView> mPageMap = new SparseArray<>();
+    private final RecyclerPageCache mPageCache = new RecyclerPageCache(this);
 
     @Override
     protected void onCreate(@Nullable Bundle savedInstanceState) {
@@ -72,18 +69,6 @@ public class CoordinatorLayoutActivity extends AppCompatActivity {
         return super.onOptionsItemSelected(item);
     }
 
-    private RecyclerView getPageView(int pos) {
-        RecyclerView view = mPageMap.get(pos);
-        if (view == null) {
-            RecyclerView recyclerView = new RecyclerView(this);
-            recyclerView.setLayoutManager(new LinearLayoutManager(this));
-            recyclerView.setAdapter(new MyRecyclerAdapter());
-            mPageMap.put(pos, recyclerView);
-            return recyclerView;
-        }
-        return view;
-    }
-
     private PagerAdapter mPagerAdapter = new PagerAdapter() {
         @Override
         public boolean isViewFromObject(View view, Object object) {
@@ -97,7 +82,7 @@ public class CoordinatorLayoutActivity extends AppCompatActivity {
 
         @Override
         public Object instantiateItem(final ViewGroup container, int position) {
-            View view = getPageView(position);
+            View view = mPageCache.acquire(position);
             ViewGroup.LayoutParams params = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
             container.addView(view, params);
             return view;
@@ -105,6 +90,8 @@ public class CoordinatorLayoutActivity extends AppCompatActivity {
 
         @Override
         public void destroyItem(ViewGroup container, int position, Object object) {
+            // 先记下滚动位置再移除，移出窗口时条目会被回收进共享池
+            mPageCache.release(position);
             container.removeView((View) object);
         }
 
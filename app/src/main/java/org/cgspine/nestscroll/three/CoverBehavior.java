@@ -1,26 +1,33 @@
 package org.cgspine.nestscroll.three;
 
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
-import androidx.core.view.ViewCompat;
 
-import android.util.Log;
 import android.view.View;
 
+import org.cgspine.nestscroll.Util;
+import org.cgspine.nestscroll.engine.HeaderMapping;
+import org.cgspine.nestscroll.engine.OffsetEngine;
+
 /**
  * @author cginechen
  * @date 2016-12-29
  */
 
 public class CoverBehavior extends CoordinatorLayout.Behavior<View> {
-    private static final String TAG = "CoverBehavior";
-    private int mHeaderInitOffset;
-    private int mHeaderCurrentOffset;
-    private int mHeaderEndOffset;
+    // target 的偏移范围在依赖变化时从 TargetBehavior 同步过来，header 的映射和另外两个方案共用同一份逻辑
+    private OffsetEngine mOffsetEngine;
+    // 跟随 TargetBehavior 的 translation 模式
+    private boolean mUseTranslation = false;
 
     public CoverBehavior(int headerInitOffset, int headerEndOffset) {
-        mHeaderInitOffset = headerInitOffset;
-        mHeaderEndOffset = headerEndOffset;
-        mHeaderCurrentOffset = mHeaderInitOffset;
+        mOffsetEngine = new OffsetEngine(0, 0, headerInitOffset, headerEndOffset);
+    }
+
+    /**
+     * 设置 header 跟随 target 的曲线，默认是线性的，target 下一次移动时生效
+     */
+    public void setHeaderMapping(HeaderMapping mapping) {
+        mOffsetEngine.setHeaderMapping(mapping);
     }
 
     @Override
@@ -28,18 +35,22 @@ public class CoverBehavior extends CoordinatorLayout.Behavior<View> {
         int width = parent.getWidth();
         int childWidth = child.getMeasuredWidth();
         int childHeight = child.getMeasuredHeight();
-        child.layout((width / 2 - childWidth / 2), mHeaderCurrentOffset,
-                (width / 2 + childWidth / 2), mHeaderCurrentOffset + childHeight);
+        final int headerCurrentOffset = mOffsetEngine.getHeaderCurrentOffset();
+        child.layout((width / 2 - childWidth / 2), headerCurrentOffset,
+                (width / 2 + childWidth / 2), headerCurrentOffset + childHeight);
+        if (mUseTranslation) {
+            child.setTranslationY(0);
+        }
         return true;
     }
 
     @Override
     public boolean layoutDependsOn(CoordinatorLayout parent, View child, View dependency) {
-        Log.i(TAG, "layoutDependsOn");
         // 这里绝对依赖于谁？CoordinatorLayout会一个个询问child的兄弟元素，看是否依赖于它
         // demo中我就让它依赖于拥有TargetBehavior的view
         CoordinatorLayout.LayoutParams lp = (CoordinatorLayout.LayoutParams) dependency.getLayoutParams();
         if (lp.getBehavior() instanceof TargetBehavior) {
+            ((TargetBehavior) lp.getBehavior()).setHeaderView(child);
             return true;
         }
         return super.layoutDependsOn(parent, child, dependency);
@@ -59,20 +70,15 @@ public class CoverBehavior extends CoordinatorLayout.Behavior<View> {
 
 
     private void moveHeaderView(TargetBehavior behavior, View view) {
-        int targetInitOffset = behavior.getTargetInitOffset();
-        int targetEndOffset = behavior.getTargetEndOffset();
-        int targetCurrentOffset = behavior.getTargetCurrentOffset();
-        Log.i(TAG, "moveHeaderView: targetCurrentOffset = " + targetCurrentOffset);
-        int target;
-        if (targetCurrentOffset >= targetInitOffset) {
-            target = mHeaderInitOffset;
-        } else if (targetCurrentOffset <= targetEndOffset) {
-            target = mHeaderEndOffset;
-        } else {
-            float percent = (targetCurrentOffset - targetEndOffset) * 1.0f / targetInitOffset - targetEndOffset;
-            target = (int) (mHeaderEndOffset + percent * (mHeaderInitOffset - mHeaderEndOffset));
+        mOffsetEngine.setTargetOffsets(behavior.getTargetInitOffset(), behavior.getTargetEndOffset());
+        mOffsetEngine.applyAbsolute(behavior.getTargetCurrentOffset());
+        if (mUseTranslation && !behavior.isUseTranslation()) {
+            // 刚关掉 translation 模式，先把累积的 translationY 折算回布局位置
+            Util.foldTranslation(view);
         }
-        ViewCompat.offsetTopAndBottom(view, target - mHeaderCurrentOffset);
-        mHeaderCurrentOffset = target;
+        mUseTranslation = behavior.isUseTranslation();
+        // header 在 onLayoutChild 里按 header 偏移量摆放，直接和 View 当前的位置（包括 translationY）比较，换曲线之后也不会错位
+        final int currentTop = view.getTop() + Math.round(view.getTranslationY());
+        Util.moveChild(view, mOffsetEngine.getHeaderCurrentOffset() - currentTop, mUseTranslation);
     }
 }
@@ -5,9 +5,21 @@ import android.content.Context;
 import androidx.annotation.NonNull;
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
 import androidx.core.view.ViewCompat;
-import android.util.Log;
+import android.os.SystemClock;
 import android.view.View;
-import android.widget.Scroller;
+import android.view.ViewConfiguration;
+
+import org.cgspine.nestscroll.FrameMonitor;
+import org.cgspine.nestscroll.FrameScrollDriver;
+import org.cgspine.nestscroll.HardwareLayerHelper;
+import org.cgspine.nestscroll.Util;
+import org.cgspine.nestscroll.engine.FlingModel;
+import org.cgspine.nestscroll.engine.OffsetEngine;
+import org.cgspine.nestscroll.engine.OnScrollSessionListener;
+import org.cgspine.nestscroll.engine.ScrollDecision;
+import org.cgspine.nestscroll.engine.ScrollSession;
+import org.cgspine.nestscroll.engine.ScrollTrace;
+import org.cgspine.nestscroll.engine.VelocityEstimator;
 
 /**
  * @author cginechen
@@ -16,27 +28,64 @@ import android.widget.Scroller;
 
 public class TargetBehavior extends CoordinatorLayout.Behavior<View> {
     private static final String TAG = "TargetBehavior";
-    private int mTargetInitOffset;
-    private int mTargetCurrentOffset;
-    private int mTargetEndOffset = 0;
+    // 这个方案里 header 由 CoverBehavior 自己负责，这里只用到 target 的偏移量
+    private OffsetEngine mOffsetEngine;
+    // 事件追踪，只有打开 ScrollTrace.ENABLED 才会分配
+    private final ScrollTrace mTrace = ScrollTrace.ENABLED ? new ScrollTrace(ScrollTrace.DEFAULT_CAPACITY) : null;
     private boolean mHasFling = false;
-    private boolean mNeedScrollToInitPos = false;
     private boolean mNeedScrollToEndPos = false;
-    private Scroller mScroller;
+    // 每个 behavior 只有一个动画驱动，同一时刻只会有一条动画在跑
+    private FrameScrollDriver mScrollDriver;
+    // 帧耗时监控，设置了 listener 才会创建
+    private FrameMonitor mFrameMonitor;
+    // 手势汇总，只有设置了 listener 才会开始记录
+    private final ScrollSession mScrollSession = new ScrollSession();
+    private OnScrollSessionListener mScrollSessionListener;
+    private final Context mAppContext;
+    // 这个 behavior 所在的 View，动画的每一帧要移动它
+    private View mChild;
+    // 拖动时按累加的嵌套滚动距离估算松手速度，列表没有 fling 时用来定位
+    private final VelocityEstimator mVelocityEstimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+    private float mVelocityPosition;
+    // 这次拖动里父 View 自己有没有移动过，整个拖动都被子 View 消耗掉时松手速度不拿来定位
+    private boolean mParentMovedInDrag = false;
+    private final float mMaxVelocity;
+    // translation 模式：target 用 translationY 移动，滚动期间 CoverBehavior 注册过来的头部提升为硬件层
+    private boolean mUseTranslation = false;
+    private final HardwareLayerHelper mHeaderLayerHelper = new HardwareLayerHelper();
+    private View mHeaderView;
+    // 列表往下 fling 时的初速度（px/s，往下为正）和列表已经滑过的距离，列表滑到顶部时用它们算出剩下的速度
+    private float mChildFlingVelocity;
+    private int mChildFlingDistance;
+    private final FlingModel mFlingModel;
 
     public TargetBehavior(Context context, int initOffset, int endOffset) {
-        mTargetInitOffset = initOffset;
-        mTargetEndOffset = endOffset;
-        mTargetCurrentOffset = mTargetInitOffset;
-        mScroller = new Scroller(context);
-        mScroller.setFriction(0.98f);
+        mOffsetEngine = new OffsetEngine(initOffset, endOffset, 0, 0);
+        mScrollDriver = new FrameScrollDriver(context, mScrollCallback);
+        mAppContext = context.getApplicationContext();
+        mMaxVelocity = ViewConfiguration.get(context).getScaledMaximumFlingVelocity();
+        mFlingModel = new FlingModel(context.getResources().getDisplayMetrics().density,
+                ViewConfiguration.getScrollFriction());
+    }
+
+    @Override
+    public void onDetachedFromLayoutParams() {
+        super.onDetachedFromLayoutParams();
+        stopScroll();
+        onScrollFinished();
+        mChild = null;
     }
 
     @Override
     public boolean onLayoutChild(CoordinatorLayout parent, View child, int layoutDirection) {
         CoordinatorLayout.LayoutParams params = (CoordinatorLayout.LayoutParams) child.getLayoutParams();
         if (params != null && params.height == CoordinatorLayout.LayoutParams.MATCH_PARENT) {
-            child.layout(0, mTargetCurrentOffset, parent.getWidth(), parent.getHeight() + mTargetCurrentOffset);
+            final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+            child.layout(0, targetCurrentOffset, parent.getWidth(), parent.getHeight() + targetCurrentOffset);
+            if (mUseTranslation) {
+                // 累积的 translationY 已经按当前偏移量折算进布局位置了
+                child.setTranslationY(0);
+            }
             return true;
         }
 
@@ -48,83 +97,194 @@ public class TargetBehavior extends CoordinatorLayout.Behavior<View> {
         return (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
     }
 
+    @Override
+    public boolean onStartNestedScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull View child,
+                                       @NonNull View directTargetChild, @NonNull View target, int axes, int type) {
+        if (type == ViewCompat.TYPE_NON_TOUCH) {
+            // 列表自己的 fling：只有往下甩的时候要跟着，等列表滑到顶部时接过剩下的速度
+            return mChildFlingVelocity > 0 && (axes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+        }
+        return super.onStartNestedScroll(coordinatorLayout, child, directTargetChild, target, axes, type);
+    }
+
+    @Override
+    public void onNestedScrollAccepted(CoordinatorLayout coordinatorLayout, View child, View directTargetChild,
+                                       View target, int axes) {
+        super.onNestedScrollAccepted(coordinatorLayout, child, directTargetChild, target, axes);
+        // 新的拖动打断正在进行的定位动画，上一次滚动在这里结束；这一次等第一个位移到来时再开始
+        mChild = child;
+        stopScroll();
+        onScrollFinished();
+        mVelocityEstimator.clear();
+        mVelocityPosition = 0;
+        mParentMovedInDrag = false;
+    }
+
     @Override
     public void onNestedPreScroll(CoordinatorLayout coordinatorLayout, View child, View target,
                                   int dx, int dy, int[] consumed) {
-        Log.i(TAG, "onNestedPreScroll: dy = " + dy);
-        // 在这个方法里面只处理向上滑动
-        if (canViewScrollUp(target) || dy <= 0) {
-            return;
+        // 旧接口只有拖动才会回调到这里，每个事件的完整 dy 累加起来就是手指的位移（方向相反）
+        mVelocityPosition -= dy;
+        mVelocityEstimator.addSample(SystemClock.uptimeMillis(), mVelocityPosition);
+        if (dy != 0) {
+            onScrollStarted();
         }
         // 在这个方法里只处理上滑
-        if (dy > 0) {
-            int parentCanConsume = mTargetCurrentOffset - mTargetEndOffset;
-            if (parentCanConsume > 0) {
-                if (dy > parentCanConsume) {
-                    consumed[1] = parentCanConsume;
-                    moveTargetViewTo(child, mTargetEndOffset);
-                } else {
-                    consumed[1] = dy;
-                    moveTargetView(child, -dy);
-                }
-            }
+        final int targetDelta = ScrollDecision.preScrollTargetDelta(dy, canViewScrollUp(target));
+        if (targetDelta == 0) {
+            mScrollSession.onPreScroll(dy, 0);
+            return;
+        }
+        consumed[1] = -moveTargetView(child, targetDelta);
+        if (consumed[1] != 0) {
+            mParentMovedInDrag = true;
+        }
+        mScrollSession.onPreScroll(dy, consumed[1]);
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_NESTED_PRE_SCROLL, dy, consumed[1], mOffsetEngine.getTargetCurrentOffset());
         }
     }
 
     @Override
     public void onNestedScroll(CoordinatorLayout coordinatorLayout, View child, View target,
                                int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
-        Log.i(TAG, "onNestedScroll: dyUnconsumed = " + dyUnconsumed);
         // 在这个方法里只处理向下滑动
-        if (dyUnconsumed < 0 && !(canViewScrollUp(target))) {
-            int dy = -dyUnconsumed;
-            moveTargetView(child, dy);
+        int moved = 0;
+        final int dy = ScrollDecision.scrollTargetDelta(mOffsetEngine, dyUnconsumed, canViewScrollUp(target), false);
+        if (dy > 0) {
+            onScrollStarted();
+            moved = moveTargetView(child, dy);
+            if (moved != 0) {
+                mParentMovedInDrag = true;
+            }
+            mScrollSession.onScroll(moved);
+        }
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_NESTED_SCROLL, dyUnconsumed, moved, mOffsetEngine.getTargetCurrentOffset());
+        }
+    }
+
+    @Override
+    public void onNestedScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull View child, @NonNull View target,
+                               int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed, int type,
+                               @NonNull int[] consumed) {
+        if (type != ViewCompat.TYPE_NON_TOUCH) {
+            super.onNestedScroll(coordinatorLayout, child, target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed,
+                    type, consumed);
+            return;
+        }
+        if (mChildFlingVelocity <= 0) {
+            return;
+        }
+        // 往下 fling 时 dyConsumed 是负的
+        mChildFlingDistance -= dyConsumed;
+        if (dyUnconsumed < 0 && !canViewScrollUp(target)) {
+            // 列表滑到了顶部：剩下的距离不消耗，列表的 fling 会因此停下来，头部以列表在这一刻剩下的速度接着展开
+            final float velocity = mFlingModel.getUnconsumedVelocity(mChildFlingVelocity, mChildFlingDistance);
+            mChildFlingVelocity = 0;
+            continueChildFling(child, velocity);
+        }
+    }
+
+    /**
+     * 接过列表滑到顶部时剩下的速度：弹簧从这个速度开始，按预测的落点选择停靠的一端。
+     * 还是同一次手势，会话接着记录，等弹簧停下来再结束
+     */
+    private void continueChildFling(View child, float velocity) {
+        mChild = child;
+        stopScroll();
+        onScrollStarted();
+        final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+        final int anchor = mScrollDriver.getSpringSettler().chooseAnchor(targetCurrentOffset, velocity,
+                mOffsetEngine.getTargetInitOffset(), mOffsetEngine.getTargetEndOffset());
+        if (anchor != targetCurrentOffset || velocity != 0) {
+            mScrollDriver.spring(targetCurrentOffset, velocity, anchor);
+        } else {
+            onScrollFinished();
         }
     }
 
     @Override
     public boolean onNestedPreFling(CoordinatorLayout coordinatorLayout, View child, View target,
                                     float velocityX, float velocityY) {
-        Log.i(TAG, "onNestedPreFling: mTargetCurrentOffset = " + mTargetCurrentOffset +
-                " ; velocityX = " + velocityX + " ; velocityY = " + velocityY);
+        final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_NESTED_PRE_FLING, (int) velocityY, 0, targetCurrentOffset);
+        }
         mHasFling = true;
+        mChildFlingVelocity = 0;
         int vy = (int) -velocityY;
         if (velocityY < 0) {
             // 向下
             if (canViewScrollUp(target)) {
+                mScrollSession.onFlingHandedOff(vy);
+                // 列表先自己滑，滑到顶部时在 onNestedScroll 里接过剩下的速度
+                mChildFlingVelocity = vy;
+                mChildFlingDistance = 0;
                 return false;
             }
-            mNeedScrollToInitPos = true;
-            mScroller.fling(0, mTargetCurrentOffset, 0, vy,
-                    0, 0, mTargetEndOffset, Integer.MAX_VALUE);
-            ViewCompat.postOnAnimation(child, new ScrollAction(child));
+            stopScroll();
+            mChild = child;
+            // 列表已经在顶部，往下甩一定是展开：弹簧从 fling 的速度开始弹到初始位置
+            mScrollDriver.spring(targetCurrentOffset, vy, mOffsetEngine.getTargetInitOffset());
             return true;
         } else {
             // 向上
-            if (mTargetCurrentOffset <= mTargetEndOffset) {
+            if (mOffsetEngine.getConsumableUp() <= 0) {
+                mScrollSession.onFlingHandedOff(vy);
                 return false;
             }
+            stopScroll();
+            mChild = child;
             mNeedScrollToEndPos = true;
-            mScroller.fling(0, mTargetCurrentOffset, 0, vy,
-                    0, 0, mTargetEndOffset, Integer.MAX_VALUE);
-            ViewCompat.postOnAnimation(child, new ScrollAction(child));
+            // 滑的距离和预测落点一致，到结束位置停下；不会像 Scroller.fling 那样停在半路再从 0 速度弹过去
+            mScrollDriver.flingToBound(targetCurrentOffset, vy, mOffsetEngine.getTargetEndOffset());
+            // 返回 false，列表同时也会以这个速度 fling
+            mScrollSession.onFlingHandedOff(vy);
         }
         return false;
     }
 
+    @Override
+    public void onStopNestedScroll(@NonNull CoordinatorLayout coordinatorLayout, @NonNull View child,
+                                   @NonNull View target, int type) {
+        if (type == ViewCompat.TYPE_NON_TOUCH) {
+            if (mChildFlingVelocity > 0) {
+                // 列表的 fling 没滑到顶部就结束或者被打断了，剩下的速度不再接，这次手势到此结束
+                mChildFlingVelocity = 0;
+                if (!mScrollDriver.isRunning()) {
+                    onScrollFinished();
+                }
+            }
+            return;
+        }
+        super.onStopNestedScroll(coordinatorLayout, child, target, type);
+    }
+
     @Override
     public void onStopNestedScroll(CoordinatorLayout coordinatorLayout, View child, View target) {
         super.onStopNestedScroll(coordinatorLayout, child, target);
+        mScrollSession.onRelease(System.nanoTime());
         if (mHasFling) {
             mHasFling = false;
+            // fling 全部交给了列表，这边没有动画要等；
+            // 列表往下 fling、滑到顶部时还要接着展开头部的，等列表的 fling 结束时再结束
+            if (!mScrollDriver.isRunning() && mChildFlingVelocity <= 0) {
+                onScrollFinished();
+            }
         } else {
-            if (mTargetCurrentOffset <= (mTargetEndOffset + mTargetInitOffset) / 2) {
-
-                mNeedScrollToEndPos = true;
+            mChild = child;
+            // 没有 fling 时松手速度没到列表的 fling 阈值，但仍然用它来选择停靠点和弹簧的初速度；
+            // 父 View 这次一点都没动过时，手指的速度是列表的，父 View 只按当前位置定位
+            final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+            final float vy = mParentMovedInDrag ? mVelocityEstimator.computeVelocity(mMaxVelocity) : 0;
+            final int anchor = mScrollDriver.getSpringSettler().chooseAnchor(targetCurrentOffset, vy,
+                    mOffsetEngine.getTargetInitOffset(), mOffsetEngine.getTargetEndOffset());
+            if (anchor != targetCurrentOffset || vy != 0) {
+                mScrollDriver.spring(targetCurrentOffset, vy, anchor);
             } else {
-                mNeedScrollToInitPos = true;
+                onScrollFinished();
             }
-            ViewCompat.postOnAnimation(child, new ScrollAction(child));
         }
     }
 
@@ -132,57 +292,158 @@ public class TargetBehavior extends CoordinatorLayout.Behavior<View> {
         return ViewCompat.canScrollVertically(view, -1);
     }
 
-    private void moveTargetView(View child, int dy) {
-        int target = mTargetCurrentOffset + dy;
-        moveTargetViewTo(child, target);
+    /**
+     * @return target View 实际移动的距离
+     */
+    private int moveTargetView(View child, int dy) {
+        return moveTargetViewTo(child, mOffsetEngine.getTargetCurrentOffset() + dy);
+    }
+
+    private int moveTargetViewTo(View child, int target) {
+        final int targetDelta = mOffsetEngine.applyAbsolute(target);
+        if (mUseTranslation && targetDelta != 0) {
+            // 头部由 CoverBehavior 跟着 target 移动，target 第一次真的移动时才把头部提升为硬件层；滚动结束时恢复
+            mHeaderLayerHelper.promote(mHeaderView);
+        }
+        Util.moveChild(child, targetDelta, mUseTranslation);
+        return targetDelta;
+    }
+
+    /**
+     * 打开 translation 模式：target 改用 translationY 移动，依赖它的 CoverBehavior 也跟着用 translationY，
+     * 拖动和定位期间头部提升为硬件层，每一帧只更新 RenderNode 的属性。
+     * CoordinatorLayout 分发触摸事件和计算依赖关系时都会把 translation 算进去。默认关闭
+     */
+    public void setUseTranslation(boolean useTranslation) {
+        if (mUseTranslation == useTranslation) {
+            return;
+        }
+        mUseTranslation = useTranslation;
+        if (!useTranslation) {
+            mHeaderLayerHelper.restore();
+            if (mChild != null) {
+                Util.foldTranslation(mChild);
+            }
+        }
+    }
+
+    public boolean isUseTranslation() {
+        return mUseTranslation;
+    }
+
+    /**
+     * CoverBehavior 确定依赖关系时把自己的 View 登记过来，translation 模式下滚动期间提升为硬件层
+     */
+    void setHeaderView(View headerView) {
+        mHeaderView = headerView;
+    }
+
+    /**
+     * 打开帧耗时监控：从开始拖动到定位动画结束，每次回调一份帧统计。传 null 关闭
+     */
+    public void setOnFrameStatsListener(FrameMonitor.Listener listener) {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+        mFrameMonitor = listener == null ? null : new FrameMonitor(mAppContext, listener);
+    }
+
+    /**
+     * 设置手势汇总的回调，每次手势结束时回调一次。传 null 关闭
+     */
+    public void setOnScrollSessionListener(OnScrollSessionListener listener) {
+        mScrollSessionListener = listener;
+    }
+
+    /**
+     * 一次滚动开始：这次手势第一次真的有位移（父 View 消耗了，或者转给了子 View）时才打开帧耗时监控、开始记录手势汇总，
+     * 只接受了嵌套滚动、手指没有移动的手势不算。重复调用什么都不做
+     */
+    private void onScrollStarted() {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.start();
+        }
+        if (mScrollSessionListener != null) {
+            mScrollSession.begin(System.nanoTime(), mOffsetEngine.getTargetCurrentOffset());
+        }
+    }
+
+    /**
+     * 一次滚动结束：定位动画结束，或者没有动画可做
+     */
+    private void onScrollFinished() {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+        mHeaderLayerHelper.restore();
+        if (mScrollSession.end(System.nanoTime(), mOffsetEngine.getTargetCurrentOffset())
+                && mScrollSessionListener != null) {
+            mScrollSessionListener.onScrollSession(mScrollSession);
+        }
+        mScrollSession.reset();
+    }
+
+    /**
+     * 调试用的事件追踪，{@link ScrollTrace#ENABLED} 为 false 时返回 null
+     */
+    public ScrollTrace getScrollTrace() {
+        return mTrace;
     }
 
-    private void moveTargetViewTo(View child, int target) {
-        target = Math.max(target, mTargetEndOffset);
-        ViewCompat.offsetTopAndBottom(child, target - mTargetCurrentOffset);
-        mTargetCurrentOffset = target;
+    /**
+     * 测试用：读出弹簧的初速度
+     */
+    FrameScrollDriver getScrollDriver() {
+        return mScrollDriver;
     }
 
     public int getTargetCurrentOffset() {
-        return mTargetCurrentOffset;
+        return mOffsetEngine.getTargetCurrentOffset();
     }
 
     public int getTargetInitOffset() {
-        return mTargetInitOffset;
+        return mOffsetEngine.getTargetInitOffset();
     }
 
     public int getTargetEndOffset() {
-        return mTargetEndOffset;
+        return mOffsetEngine.getTargetEndOffset();
     }
 
-    private class ScrollAction implements Runnable {
-        private View mView;
-
-        public ScrollAction(View view) {
-            mView = view;
+    private final FrameScrollDriver.Callback mScrollCallback = new FrameScrollDriver.Callback() {
+        @Override
+        public void onScrollFrame(int offset) {
+            moveTargetViewTo(mChild, offset);
         }
 
         @Override
-        public void run() {
-            if (mScroller.computeScrollOffset()) {
-                int offsetY = mScroller.getCurrY();
-                moveTargetViewTo(mView, offsetY);
-                ViewCompat.postOnAnimation(mView, new ScrollAction(mView));
-            } else if (mNeedScrollToInitPos) {
-                mNeedScrollToInitPos = false;
-                if (mTargetCurrentOffset == mTargetInitOffset) {
-                    return;
-                }
-                mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetInitOffset - mTargetCurrentOffset);
-                ViewCompat.postOnAnimation(mView, new ScrollAction(mView));
-            } else if (mNeedScrollToEndPos) {
-                mNeedScrollToEndPos = false;
-                if (mTargetCurrentOffset == mTargetEndOffset) {
-                    return;
-                }
-                mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetEndOffset - mTargetCurrentOffset);
-                ViewCompat.postOnAnimation(mView, new ScrollAction(mView));
+        public void onScrollEnd() {
+            settle();
+            if (!mScrollDriver.isRunning()) {
+                onScrollFinished();
             }
         }
+    };
+
+    /**
+     * 滚动到初始位置或者结束位置
+     */
+    private void settle() {
+        final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+        if (mNeedScrollToEndPos) {
+            mNeedScrollToEndPos = false;
+            if (targetCurrentOffset == mOffsetEngine.getTargetEndOffset()) {
+                return;
+            }
+            // 没到结束位置就停了，带着剩下的速度弹过去
+            mScrollDriver.spring(targetCurrentOffset, -mScrollDriver.getCurrVelocity(), mOffsetEngine.getTargetEndOffset());
+        }
+    }
+
+    /**
+     * 停掉正在进行的动画，新的拖动或者 fling 开始时调用，避免几条动画叠在一起推进同一个 Scroller
+     */
+    private void stopScroll() {
+        mScrollDriver.stop();
+        mNeedScrollToEndPos = false;
     }
 }
@@ -6,16 +6,13 @@ import com.google.android.material.tabs.TabLayout;
 import androidx.viewpager.widget.PagerAdapter;
 import androidx.viewpager.widget.ViewPager;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.recyclerview.widget.LinearLayoutManager;
-import androidx.recyclerview.widget.RecyclerView;
 import androidx.appcompat.widget.Toolbar;
-import android.util.SparseArray;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
 
-import org.cgspine.nestscroll.MyRecyclerAdapter;
 import org.cgspine.nestscroll.R;
+import org.cgspine.nestscroll.RecyclerPageCache;
 
 /**
  * @author cginechen
@@ -26,7 +23,7 @@ public class NestingScrollActivity extends AppCompatActivity {
     private Toolbar mToolbar;
     private TabLayout mTabLayout;
     private ViewPager mViewPager;
-    private SparseArray<RecyclerView> mPageMap = new SparseArray<>();
+    private final RecyclerPageCache mPageCache = new RecyclerPageCache(this);
 
 
     @Override
@@ -52,19 +49,6 @@ public class NestingScrollActivity extends AppCompatActivity {
 
         return super.onOptionsItemSelected(item);
     }
-    // 这里使用 RecyclerView 作为列表，原因是 ListView 没有实现 NestedScrollingChild 接口
-    private RecyclerView getPageView(int pos) {
-        RecyclerView view = mPageMap.get(pos);
-        if (view == null) {
-            RecyclerView recyclerView = new RecyclerView(this);
-            recyclerView.setLayoutManager(new LinearLayoutManager(this));
-            recyclerView.setAdapter(new MyRecyclerAdapter());
-            mPageMap.put(pos, recyclerView);
-            return recyclerView;
-        }
-        return view;
-    }
-
     private PagerAdapter mPagerAdapter = new PagerAdapter() {
         @Override
         public boolean isViewFromObject(View view, Object object) {
@@ -78,7 +62,8 @@ public class NestingScrollActivity extends AppCompatActivity {
 
         @Override
         public Object instantiateItem(final ViewGroup container, int position) {
-            View view = getPageView(position);
+            // 这里使用 RecyclerView 作为列表，原因是 ListView 没有实现 NestedScrollingChild 接口
+            View view = mPageCache.acquire(position);
             ViewGroup.LayoutParams params = new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
             container.addView(view, params);
             return view;
@@ -86,6 +71,8 @@ public class NestingScrollActivity extends AppCompatActivity {
 
         @Override
         public void destroyItem(ViewGroup container, int position, Object object) {
+            // 先记下滚动位置再移除，移出窗口时条目会被回收进共享池
+            mPageCache.release(position);
             container.removeView((View) object);
         }
 
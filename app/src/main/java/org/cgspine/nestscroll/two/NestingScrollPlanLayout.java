@@ -4,44 +4,86 @@ import android.content.Context;
 import android.content.res.TypedArray;
 
 import androidx.annotation.NonNull;
-import androidx.core.view.NestedScrollingParent;
+import androidx.core.view.NestedScrollingParent3;
 import androidx.core.view.NestedScrollingParentHelper;
 import androidx.core.view.ViewCompat;
+import android.os.SystemClock;
 import android.util.AttributeSet;
-import android.util.Log;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
-import android.widget.Scroller;
 
+import org.cgspine.nestscroll.FrameMonitor;
+import org.cgspine.nestscroll.FrameScrollDriver;
+import org.cgspine.nestscroll.HardwareLayerHelper;
+import org.cgspine.nestscroll.LayerLayoutParams;
 import org.cgspine.nestscroll.R;
 import org.cgspine.nestscroll.Util;
+import org.cgspine.nestscroll.engine.HeaderMapping;
+import org.cgspine.nestscroll.engine.LayerEngine;
+import org.cgspine.nestscroll.engine.OffsetEngine;
+import org.cgspine.nestscroll.engine.OnScrollSessionListener;
+import org.cgspine.nestscroll.engine.ScrollDecision;
+import org.cgspine.nestscroll.engine.ScrollSession;
+import org.cgspine.nestscroll.engine.ScrollTrace;
+import org.cgspine.nestscroll.engine.VelocityEstimator;
 
 /**
  * @author cginechen
  * @date 2016-12-28
  */
 
-public class NestingScrollPlanLayout extends ViewGroup implements NestedScrollingParent {
+public class NestingScrollPlanLayout extends ViewGroup implements NestedScrollingParent3 {
     private static final String TAG = "NestingScrollPlanLayout";
 
     private int mHeaderViewId = 0;
     private int mTargetViewId = 0;
     private View mHeaderView;
     private View mTargetView;
-    // 头部 View 偏移量
-    private int mHeaderInitOffset;
-    private int mHeaderCurrentOffset;
-    private int mHeaderEndOffset = 0;
-    // target View 偏移量
-    private int mTargetInitOffset;
-    private int mTargetCurrentOffset;
-    private int mTargetEndOffset = 0;
+    // 头部 View 和 target View 的偏移量
+    private OffsetEngine mOffsetEngine;
+    // 事件追踪，只有打开 ScrollTrace.ENABLED 才会分配
+    private final ScrollTrace mTrace = ScrollTrace.ENABLED ? new ScrollTrace(ScrollTrace.DEFAULT_CAPACITY) : null;
 
     private final NestedScrollingParentHelper mNestedScrollingParentHelper;
-    private Scroller mScroller;
-    private boolean mNeedScrollToInitPos = false;
-    private boolean mNeedScrollToEndPos = false;
-    private boolean mHasFling = false;
+    private FrameScrollDriver mScrollDriver;
+    // 帧耗时监控，设置了 listener 才会创建
+    private FrameMonitor mFrameMonitor;
+    // 手势汇总，只有设置了 listener 才会开始记录
+    private final ScrollSession mScrollSession = new ScrollSession();
+    private OnScrollSessionListener mScrollSessionListener;
+    // 测量缓存：上一次测量时交给子 View 的规格（已经扣掉 padding），内容区的和目标 View 的
+    private int mLastContentWidthSpec;
+    private int mLastContentHeightSpec;
+    private int mLastTargetWidthSpec;
+    private int mLastTargetHeightSpec;
+    private boolean mMeasureCacheValid = false;
+    // 上一次布局之后有子 View 被重新测量过
+    private boolean mChildMeasuredSinceLayout = false;
+    // 缓存的绘制顺序，getChildDrawingOrder 直接按下标读
+    private int[] mDrawingOrder = new int[0];
+    private boolean mDrawingOrderValid = false;
+    // 头部 View 之外跟随目标 View 滚动的层，见 LayerLayoutParams。mLayerViews[i] 对应 mLayerEngine 的第 i 层
+    private final LayerEngine mLayerEngine;
+    private View[] mLayerViews = new View[0];
+    private int mLayerCount = 0;
+    // 增删子 View 或者换了头部 / 目标 View 之后才需要重新收集层
+    private boolean mLayersValid = false;
+    // translation 模式：子 View 用 translationY 移动，滚动期间头部 View 提升为硬件层
+    private boolean mUseTranslation = false;
+    private final HardwareLayerHelper mHeaderLayerHelper = new HardwareLayerHelper();
+    /**
+     * 子 View 是否正在通过 TYPE_NON_TOUCH 的嵌套滚动 fling
+     */
+    private boolean mIsNestedFlinging = false;
+    // onNestedScroll 的旧接口没有 consumed 数组，复用这一个，避免每次分配
+    private final int[] mNestedScrollConsumed = new int[2];
+    // 拖动时按累加的嵌套滚动距离估算松手速度，子 View 没有 fling 时用来定位
+    private final VelocityEstimator mVelocityEstimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+    private float mVelocityPosition;
+    // 这次拖动里父 View 自己有没有移动过，整个拖动都被子 View 消耗掉时松手速度不拿来定位
+    private boolean mParentMovedInDrag = false;
+    private float mMaxVelocity;
 
     public NestingScrollPlanLayout(Context context) {
         this(context, null);
@@ -53,20 +95,20 @@ public class NestingScrollPlanLayout extends ViewGroup implements NestedScrollin
         mHeaderViewId = array.getResourceId(R.styleable.NestingScrollPlanLayout_header_view, 0);
         mTargetViewId = array.getResourceId(R.styleable.NestingScrollPlanLayout_target_view, 0);
 
-        mHeaderInitOffset = array.getDimensionPixelSize(R.styleable.
+        int headerInitOffset = array.getDimensionPixelSize(R.styleable.
                 NestingScrollPlanLayout_header_init_offset, Util.dp2px(getContext(), 20));
-        mTargetInitOffset = array.getDimensionPixelSize(R.styleable.
+        int targetInitOffset = array.getDimensionPixelSize(R.styleable.
                 NestingScrollPlanLayout_target_init_offset, Util.dp2px(getContext(), 40));
-        mHeaderCurrentOffset = mHeaderInitOffset;
-        mTargetCurrentOffset = mTargetInitOffset;
+        mOffsetEngine = new OffsetEngine(targetInitOffset, 0, headerInitOffset, 0);
+        mLayerEngine = new LayerEngine(targetInitOffset, 0);
         array.recycle();
 
         setChildrenDrawingOrderEnabled(true);
         // 初始化 NestedScrollingParentHelper 这个辅助类
         mNestedScrollingParentHelper = new NestedScrollingParentHelper(this);
 
-        mScroller = new Scroller(getContext());
-        mScroller.setFriction(0.98f);
+        mScrollDriver = new FrameScrollDriver(getContext(), mScrollCallback);
+        mMaxVelocity = ViewConfiguration.get(context).getScaledMaximumFlingVelocity();
     }
 
     @Override
@@ -78,6 +120,8 @@ public class NestingScrollPlanLayout extends ViewGroup implements NestedScrollin
         if (mTargetViewId != 0) {
             mTargetView = findViewById(mTargetViewId);
         }
+        mDrawingOrderValid = false;
+        mLayersValid = false;
     }
 
     private void ensureHeaderViewAndScrollView() {
@@ -87,6 +131,8 @@ public class NestingScrollPlanLayout extends ViewGroup implements NestedScrollin
         if (mHeaderView == null && mTargetView == null && getChildCount() >= 2) {
             mHeaderView = getChildAt(0);
             mTargetView = getChildAt(1);
+            mDrawingOrderValid = false;
+            mLayersValid = false;
             return;
         }
         throw new RuntimeException("please ensure headerView and scrollView");
@@ -94,31 +140,126 @@ public class NestingScrollPlanLayout extends ViewGroup implements NestedScrollin
 
     @Override
     protected int getChildDrawingOrder(int childCount, int i) {
+        // 每一帧都会走到这里，只读数组；增删子 View 或者换了头部 / 目标 View 时才重新计算
+        if (!mDrawingOrderValid || mDrawingOrder.length != childCount) {
+            rebuildDrawingOrder(childCount);
+        }
+        return mDrawingOrder[i];
+    }
+
+    /**
+     * 计算绘制顺序：头部 View 在目标 View 之后添加时，两者交换，保证目标 View 盖在头部上面
+     */
+    private void rebuildDrawingOrder(int childCount) {
         ensureHeaderViewAndScrollView();
+        if (mDrawingOrder.length != childCount) {
+            mDrawingOrder = new int[childCount];
+        }
+        for (int i = 0; i < childCount; i++) {
+            mDrawingOrder[i] = i;
+        }
         int headerIndex = indexOfChild(mHeaderView);
         int scrollIndex = indexOfChild(mTargetView);
-        if (headerIndex < scrollIndex) {
-            return i;
+        if (scrollIndex >= 0 && headerIndex > scrollIndex) {
+            mDrawingOrder[headerIndex] = scrollIndex;
+            mDrawingOrder[scrollIndex] = headerIndex;
         }
-        if (headerIndex == i) {
-            return scrollIndex;
-        } else if (scrollIndex == i) {
-            return headerIndex;
+        // 再按层的 z 稳定排序（插入排序，子 View 很少），z 相同的保持上面的顺序
+        for (int i = 1; i < childCount; i++) {
+            final int index = mDrawingOrder[i];
+            final int z = getLayerZ(index);
+            int j = i - 1;
+            while (j >= 0 && getLayerZ(mDrawingOrder[j]) > z) {
+                mDrawingOrder[j + 1] = mDrawingOrder[j];
+                j--;
+            }
+            mDrawingOrder[j + 1] = index;
         }
-        return i;
+        mDrawingOrderValid = true;
+    }
+
+    private int getLayerZ(int childIndex) {
+        return ((LayerLayoutParams) getChildAt(childIndex).getLayoutParams()).z;
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof LayerLayoutParams;
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateDefaultLayoutParams() {
+        return new LayerLayoutParams(LayoutParams.WRAP_CONTENT, LayoutParams.WRAP_CONTENT);
+    }
+
+    @Override
+    public ViewGroup.LayoutParams generateLayoutParams(AttributeSet attrs) {
+        return new LayerLayoutParams(getContext(), attrs);
+    }
+
+    @Override
+    protected ViewGroup.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return LayerLayoutParams.from(p);
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        mDrawingOrderValid = false;
+        mLayersValid = false;
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        mDrawingOrderValid = false;
+        mLayersValid = false;
     }
     // 测量
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
         super.onMeasure(widthMeasureSpec, heightMeasureSpec);
         ensureHeaderViewAndScrollView();
+        // 测量缓存按扣掉 padding 之后交给子 View 的规格判断：规格和 padding 都没变时，只重新测量请求过重新布局的子 View。
+        // 头部 View 和其余的层由 getChildMeasureSpec 从内容区的规格推出来，目标 View 固定为内容区的大小
+        final int horizontalPadding = getPaddingLeft() + getPaddingRight();
+        final int verticalPadding = getPaddingTop() + getPaddingBottom();
+        final int contentWidthSpec = MeasureSpec.makeMeasureSpec(
+                Math.max(0, MeasureSpec.getSize(widthMeasureSpec) - horizontalPadding), MeasureSpec.getMode(widthMeasureSpec));
+        final int contentHeightSpec = MeasureSpec.makeMeasureSpec(
+                Math.max(0, MeasureSpec.getSize(heightMeasureSpec) - verticalPadding), MeasureSpec.getMode(heightMeasureSpec));
         // target view 的高度是全屏的高度
-        int scrollMeasureWidthSpec = MeasureSpec.makeMeasureSpec(
-                getMeasuredWidth() - getPaddingLeft() - getPaddingRight(), MeasureSpec.EXACTLY);
-        int scrollMeasureHeightSpec = MeasureSpec.makeMeasureSpec(
-                getMeasuredHeight() - getPaddingTop() - getPaddingBottom(), MeasureSpec.EXACTLY);
-        mTargetView.measure(scrollMeasureWidthSpec, scrollMeasureHeightSpec);
-        measureChild(mHeaderView, widthMeasureSpec, heightMeasureSpec);
+        final int scrollMeasureWidthSpec = MeasureSpec.makeMeasureSpec(
+                getMeasuredWidth() - horizontalPadding, MeasureSpec.EXACTLY);
+        final int scrollMeasureHeightSpec = MeasureSpec.makeMeasureSpec(
+                getMeasuredHeight() - verticalPadding, MeasureSpec.EXACTLY);
+        final boolean specChanged = !mMeasureCacheValid
+                || contentWidthSpec != mLastContentWidthSpec || contentHeightSpec != mLastContentHeightSpec
+                || scrollMeasureWidthSpec != mLastTargetWidthSpec || scrollMeasureHeightSpec != mLastTargetHeightSpec;
+        if (specChanged || mTargetView.isLayoutRequested()) {
+            mTargetView.measure(scrollMeasureWidthSpec, scrollMeasureHeightSpec);
+            mChildMeasuredSinceLayout = true;
+        }
+        if (specChanged || mHeaderView.isLayoutRequested()) {
+            measureChild(mHeaderView, widthMeasureSpec, heightMeasureSpec);
+            mChildMeasuredSinceLayout = true;
+        }
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            if (child == mHeaderView || child == mTargetView
+                    || !((LayerLayoutParams) child.getLayoutParams()).isLayer) {
+                continue;
+            }
+            if (specChanged || child.isLayoutRequested()) {
+                measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+                mChildMeasuredSinceLayout = true;
+            }
+        }
+        mLastContentWidthSpec = contentWidthSpec;
+        mLastContentHeightSpec = contentHeightSpec;
+        mLastTargetWidthSpec = scrollMeasureWidthSpec;
+        mLastTargetHeightSpec = scrollMeasureHeightSpec;
+        mMeasureCacheValid = true;
     }
     // 布局
     @Override
@@ -134,167 +275,370 @@ public class NestingScrollPlanLayout extends ViewGroup implements NestedScrollin
         final int childTop = getPaddingTop();
         final int childWidth = width - getPaddingLeft() - getPaddingRight();
         final int childHeight = height - getPaddingTop() - getPaddingBottom();
-        mTargetView.layout(childLeft, childTop + mTargetCurrentOffset,
-                childLeft + childWidth, childTop + childHeight + mTargetCurrentOffset);
+        final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+        final int headerCurrentOffset = mOffsetEngine.getHeaderCurrentOffset();
+        // 刚测量过的子 View 必须重新布局，否则位置没变、也没请求重新布局的子 View 直接跳过
+        final boolean force = changed || mChildMeasuredSinceLayout;
+        mChildMeasuredSinceLayout = false;
+        Util.layoutChildIfNeeded(mTargetView, childLeft, childTop + targetCurrentOffset,
+                childLeft + childWidth, childTop + childHeight + targetCurrentOffset, force);
         int headerViewWidth = mHeaderView.getMeasuredWidth();
         int headerViewHeight = mHeaderView.getMeasuredHeight();
-        mHeaderView.layout((width / 2 - headerViewWidth / 2), mHeaderCurrentOffset,
-                (width / 2 + headerViewWidth / 2), mHeaderCurrentOffset + headerViewHeight);
+        Util.layoutChildIfNeeded(mHeaderView, (width / 2 - headerViewWidth / 2), headerCurrentOffset,
+                (width / 2 + headerViewWidth / 2), headerCurrentOffset + headerViewHeight, force);
+        // 其余的层按各自的偏移量摆放
+        syncLayers();
+        for (int i = 0; i < mLayerCount; i++) {
+            final View layer = mLayerViews[i];
+            final LayerLayoutParams lp = (LayerLayoutParams) layer.getLayoutParams();
+            final int layerLeft = childLeft + lp.leftMargin;
+            final int layerTop = mLayerEngine.getLayerOffset(i) + lp.topMargin;
+            Util.layoutChildIfNeeded(layer, layerLeft, layerTop,
+                    layerLeft + layer.getMeasuredWidth(), layerTop + layer.getMeasuredHeight(), force);
+        }
+        if (mUseTranslation) {
+            // translation 模式下拖动累积的位移已经按当前偏移量折算进布局位置了
+            mTargetView.setTranslationY(0);
+            mHeaderView.setTranslationY(0);
+            for (int i = 0; i < mLayerCount; i++) {
+                mLayerViews[i].setTranslationY(0);
+            }
+        }
+    }
+
+    /**
+     * 同步跟随滚动的层，只在布局时调用。偏移范围每次都同步（没变时什么都不做）；
+     * 层本身只在增删子 View、换了头部 / 目标 View 之后按 LayoutParams 重新收集，
+     * 所以改了某个层的 LayoutParams 要重新添加这个子 View 才会生效
+     */
+    private void syncLayers() {
+        mLayerEngine.setTargetOffsets(mOffsetEngine.getTargetInitOffset(), mOffsetEngine.getTargetEndOffset());
+        mLayerEngine.setTargetOffset(mOffsetEngine.getTargetCurrentOffset());
+        if (mLayersValid) {
+            return;
+        }
+        mLayerEngine.clearLayers();
+        final int count = getChildCount();
+        if (mLayerViews.length < count) {
+            mLayerViews = new View[count];
+        }
+        int layerCount = 0;
+        for (int i = 0; i < count; i++) {
+            final View child = getChildAt(i);
+            final LayerLayoutParams lp = (LayerLayoutParams) child.getLayoutParams();
+            if (child == mHeaderView || child == mTargetView || !lp.isLayer) {
+                continue;
+            }
+            mLayerEngine.addLayer(lp.initOffset, lp.endOffset, lp.mapping);
+            mLayerViews[layerCount++] = child;
+        }
+        for (int i = layerCount; i < mLayerCount; i++) {
+            mLayerViews[i] = null;
+        }
+        mLayerCount = layerCount;
+        mLayersValid = true;
     }
 
+    // 下面几个是旧版 NestedScrollingParent 的接口，统一按 TYPE_TOUCH 转给带 type 的版本
+
     @Override
-    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
-        Log.i(TAG, "onStartNestedScroll: nestedScrollAxes = " + nestedScrollAxes);
-        // 接受纵向滚动
-        return isEnabled() && (nestedScrollAxes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    public boolean onStartNestedScroll(@NonNull View child, @NonNull View target, int nestedScrollAxes) {
+        return onStartNestedScroll(child, target, nestedScrollAxes, ViewCompat.TYPE_TOUCH);
     }
 
     @Override
     public void onNestedScrollAccepted(@NonNull View child, @NonNull View target, int axes) {
-        Log.i(TAG, "onNestedScrollAccepted: axes = " + axes);
-        // 这一步需要交给 NestedScrollingParentHelper 去记录相关变量
-        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes);
+        onNestedScrollAccepted(child, target, axes, ViewCompat.TYPE_TOUCH);
     }
 
     @Override
     public void onNestedPreScroll(@NonNull View target, int dx, int dy, @NonNull int[] consumed) {
+        onNestedPreScroll(target, dx, dy, consumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onNestedScroll(@NonNull View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        onNestedScroll(target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, ViewCompat.TYPE_TOUCH);
+    }
+
+    @Override
+    public void onStopNestedScroll(@NonNull View child) {
+        onStopNestedScroll(child, ViewCompat.TYPE_TOUCH);
+    }
+
+    // NestedScrollingParent2/3：子 View 的 fling 以 TYPE_NON_TOUCH 的形式逐帧传过来，
+    // 父 View 直接跟着这一条物理曲线收起或展开头部，不再自己另起一个 Scroller 去猜 fling 的结果
+
+    @Override
+    public boolean onStartNestedScroll(@NonNull View child, @NonNull View target, int axes, int type) {
+        // 接受纵向滚动
+        return isEnabled() && (axes & ViewCompat.SCROLL_AXIS_VERTICAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(@NonNull View child, @NonNull View target, int axes, int type) {
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_START_NESTED_SCROLL, type, 0, mOffsetEngine.getTargetCurrentOffset());
+        }
+        // 这一步需要交给 NestedScrollingParentHelper 去记录相关变量
+        mNestedScrollingParentHelper.onNestedScrollAccepted(child, target, axes, type);
+        if (type == ViewCompat.TYPE_NON_TOUCH) {
+            mIsNestedFlinging = true;
+        } else {
+            // 新的拖动打断正在进行的定位动画，上一次滚动在这里结束；这一次等第一个位移到来时再开始
+            mScrollDriver.stop();
+            onScrollFinished();
+            mVelocityEstimator.clear();
+            mVelocityPosition = 0;
+            mParentMovedInDrag = false;
+        }
+    }
+
+    @Override
+    public void onNestedPreScroll(@NonNull View target, int dx, int dy, @NonNull int[] consumed, int type) {
         // NestingScroll 滚动前，我们要先看看自己能不能消耗，消耗量记录在 consumed 数组里面
         // 往上滑动时我们先看看自己可以消耗多少（因为上滑时自己的消耗量可以出现上限），往下滑动时我们看看子元素可以消耗多少（因为下滑时子View的消耗量可以出现上限）
-        // 基于上一点，我们这里只处理上滑的情况
-        Log.i(TAG, "onNestedPreScroll: dx = " + dx + " ; dy = " + dy);
-        if (canViewScrollUp(target)) {
-            return;
+        // 基于上一点，我们这里只处理上滑的情况，拖动和 fling 的处理方式一样
+        if (type == ViewCompat.TYPE_TOUCH) {
+            // 每个拖动事件的完整 dy 都会先到这里，累加起来就是手指的位移（方向相反）
+            mVelocityPosition -= dy;
+            mVelocityEstimator.addSample(SystemClock.uptimeMillis(), mVelocityPosition);
         }
-        if (dy > 0) {
-            // 往上滑
-            int parentCanConsume = mTargetCurrentOffset - mTargetEndOffset;
-            if (parentCanConsume > 0) {
-                if (dy > parentCanConsume) {
-                    // 自己消耗不完，余下部分会给子 View
-                    consumed[1] = parentCanConsume;
-                    moveTargetViewTo(mTargetEndOffset);
-                } else {
-                    // 自己全部消耗
-                    consumed[1] = dy;
-                    moveTargetView(-dy);
-                }
+        if (dy != 0) {
+            onScrollStarted();
+        }
+        final int targetDelta = ScrollDecision.preScrollTargetDelta(dy, canViewScrollUp(target));
+        if (targetDelta != 0) {
+            // 往上滑：自己能消耗多少由 OffsetEngine 做边界限制，消耗不完的余下部分会给子 View
+            consumed[1] = -moveTargetView(targetDelta);
+            if (consumed[1] != 0) {
+                mParentMovedInDrag = true;
             }
         }
+        mScrollSession.onPreScroll(dy, consumed[1]);
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_NESTED_PRE_SCROLL, dy, consumed[1], mOffsetEngine.getTargetCurrentOffset());
+        }
     }
 
     @Override
-    public void onNestedScroll(@NonNull View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+    public void onNestedScroll(@NonNull View target, int dxConsumed, int dyConsumed,
+                               int dxUnconsumed, int dyUnconsumed, int type) {
+        mNestedScrollConsumed[1] = 0;
+        onNestedScroll(target, dxConsumed, dyConsumed, dxUnconsumed, dyUnconsumed, type, mNestedScrollConsumed);
+    }
+
+    @Override
+    public void onNestedScroll(@NonNull View target, int dxConsumed, int dyConsumed,
+                               int dxUnconsumed, int dyUnconsumed, int type, @NonNull int[] consumed) {
         // NestingScroll 时，我们只处理往下滑的情况，如果有未消耗的量，则滚动父 View
-        Log.i(TAG, "onNestedScroll: dxConsumed = " + dxConsumed + " ; dyConsumed = " + dyConsumed +
-                " ; dxUnconsumed = " + dxUnconsumed + " ; dyUnconsumed = " + dyUnconsumed);
-        if (dyUnconsumed < 0 && !(canViewScrollUp(target))) {
-            int dy = -dyUnconsumed;
-            moveTargetView(dy);
+        int moved = 0;
+        // fling 只展开到初始位置，剩下的不消耗，子 View 的 fling 会因此停下来
+        final int dy = ScrollDecision.scrollTargetDelta(mOffsetEngine, dyUnconsumed,
+                canViewScrollUp(target), type == ViewCompat.TYPE_NON_TOUCH);
+        if (dy > 0) {
+            onScrollStarted();
+            moved = moveTargetView(dy);
+            if (moved != 0) {
+                mParentMovedInDrag = true;
+            }
+            // 把实际消耗的量告诉子 View，方向和 dyUnconsumed 一致
+            consumed[1] -= moved;
+            mScrollSession.onScroll(moved);
+        }
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_NESTED_SCROLL, dyUnconsumed, moved, mOffsetEngine.getTargetCurrentOffset());
         }
     }
 
+    @Override
+    public boolean onNestedPreFling(@NonNull View target, float velocityX, float velocityY) {
+        // fling 本身由子 View 以 TYPE_NON_TOUCH 的嵌套滚动逐帧传过来，这里只记录交给子 View 的速度
+        mScrollSession.onFlingHandedOff(-velocityY);
+        return false;
+    }
+
     @Override
     public int getNestedScrollAxes() {
         return mNestedScrollingParentHelper.getNestedScrollAxes();
     }
 
     @Override
-    public void onStopNestedScroll(View child) {
-        Log.i(TAG, "onStopNestedScroll");
-        // 结束滚动：因为不管有没有出现 fling，都会走进这里，所以我这里有一个标志位，如果有fling,则在fling中处理最终定位，否则在结束时处理最终定位
-        mNestedScrollingParentHelper.onStopNestedScroll(child);
-        if (mHasFling) {
-            mHasFling = false;
-        } else {
-            if (mTargetCurrentOffset <= (mTargetEndOffset + mTargetInitOffset) / 2) {
-                mNeedScrollToEndPos = true;
-            } else {
-                mNeedScrollToInitPos = true;
+    public void onStopNestedScroll(@NonNull View target, int type) {
+        if (ScrollTrace.ENABLED) {
+            mTrace.record(ScrollTrace.KIND_STOP_NESTED_SCROLL, type, 0, mOffsetEngine.getTargetCurrentOffset());
+        }
+        mNestedScrollingParentHelper.onStopNestedScroll(target, type);
+        if (type == ViewCompat.TYPE_TOUCH) {
+            mScrollSession.onRelease(System.nanoTime());
+            // 手指抬起时如果子 View 已经开始 fling（TYPE_NON_TOUCH 先于这里开始），等 fling 结束时再定位
+            if (mIsNestedFlinging) {
+                return;
             }
-            invalidate();
+            // 速度没到子 View 的 fling 阈值，但仍然用它来选择停靠点和弹簧的初速度；
+            // 父 View 这次一点都没动过时，手指的速度是列表的，父 View 只按当前位置定位
+            settleTo(mParentMovedInDrag ? mVelocityEstimator.computeVelocity(mMaxVelocity) : 0);
+        } else {
+            mIsNestedFlinging = false;
+            settleTo(0);
         }
     }
 
-    @Override
-    public boolean onNestedPreFling(@NonNull View target, float velocityX, float velocityY) {
-        super.onNestedPreFling(target, velocityX, velocityY);
-        // fling 前回调，我们会主动将其滚动到特定位置，如果向上 fling 时，会 return false 表示并不阻断子 view 的 fling
-        Log.i(TAG, "onNestedPreFling: mTargetCurrentOffset = " + mTargetCurrentOffset +
-                " ; velocityX = " + velocityX + " ; velocityY = " + velocityY);
-        mHasFling = true;
-        int vy = (int) -velocityY;
-        if (velocityY < 0) {
-            // 向下
-            if (canViewScrollUp(target)) {
-                return false;
-            }
-            mNeedScrollToInitPos = true;
-            mScroller.fling(0, mTargetCurrentOffset, 0, vy,
-                    0, 0, mTargetEndOffset, Integer.MAX_VALUE);
-            invalidate();
-            return true;
+    /**
+     * 按松手速度选择停靠的一端，用弹簧定位过去
+     *
+     * @param vy 松手速度（px/s），正数表示往下
+     */
+    private void settleTo(float vy) {
+        final int targetCurrentOffset = mOffsetEngine.getTargetCurrentOffset();
+        final int anchor = mScrollDriver.getSpringSettler().chooseAnchor(targetCurrentOffset, vy,
+                mOffsetEngine.getTargetInitOffset(), mOffsetEngine.getTargetEndOffset());
+        if (anchor != targetCurrentOffset || vy != 0) {
+            mScrollDriver.spring(targetCurrentOffset, vy, anchor);
         } else {
-            // 向上
-            if (mTargetCurrentOffset <= mTargetEndOffset) {
-                return false;
-            }
-            mNeedScrollToEndPos = true;
-            mScroller.fling(0, mTargetCurrentOffset, 0, vy,
-                    0, 0, mTargetEndOffset, Integer.MAX_VALUE);
-            invalidate();
+            onScrollFinished();
         }
-        return false;
     }
 
-
     private boolean canViewScrollUp(View view) {
         return ViewCompat.canScrollVertically(view, -1);
     }
 
 
-    private void moveTargetView(float dy) {
-        int target = mTargetCurrentOffset + (int) (dy);
-        moveTargetViewTo(target);
+    /**
+     * @return target View 实际移动的距离
+     */
+    private int moveTargetView(float dy) {
+        int target = mOffsetEngine.getTargetCurrentOffset() + (int) (dy);
+        return moveTargetViewTo(target);
     }
 
-    private void moveTargetViewTo(int target) {
-        target = Math.max(target, mTargetEndOffset);
-        ViewCompat.offsetTopAndBottom(mTargetView, target - mTargetCurrentOffset);
-        mTargetCurrentOffset = target;
+    private int moveTargetViewTo(int target) {
+        final int targetDelta = mOffsetEngine.applyAbsolute(target);
+        Util.moveChild(mTargetView, targetDelta, mUseTranslation);
+        if (mUseTranslation && mOffsetEngine.getHeaderDelta() != 0) {
+            // 头部第一次真的要移动时才提升为硬件层，没有移动头部的手势不用付出提升的代价；滚动结束时恢复
+            mHeaderLayerHelper.promote(mHeaderView);
+        }
+        Util.moveChild(mHeaderView, mOffsetEngine.getHeaderDelta(), mUseTranslation);
+        if (mLayerCount > 0) {
+            // 所有层一次算完，再一起移动
+            mLayerEngine.setTargetOffset(mOffsetEngine.getTargetCurrentOffset());
+            for (int i = 0; i < mLayerCount; i++) {
+                Util.moveChild(mLayerViews[i], mLayerEngine.getLayerDelta(i), mUseTranslation);
+            }
+        }
+        return targetDelta;
+    }
 
-        int headerTarget;
-        if (mTargetCurrentOffset >= mTargetInitOffset) {
-            headerTarget = mHeaderInitOffset;
-        } else if (mTargetCurrentOffset <= mTargetEndOffset) {
-            headerTarget = mHeaderEndOffset;
-        } else {
-            float percent = (mTargetCurrentOffset - mTargetEndOffset) * 1.0f / (mTargetInitOffset - mTargetEndOffset);
-            headerTarget = (int) (mHeaderEndOffset + percent * (mHeaderInitOffset - mHeaderEndOffset));
+    /**
+     * 设置 header 跟随 target 的曲线，默认是线性的，见 {@link HeaderMapping}
+     */
+    public void setHeaderMapping(HeaderMapping mapping) {
+        mOffsetEngine.setHeaderMapping(mapping);
+        if (mHeaderView != null) {
+            Util.moveChild(mHeaderView, mOffsetEngine.getHeaderDelta(), mUseTranslation);
         }
-        ViewCompat.offsetTopAndBottom(mHeaderView, headerTarget - mHeaderCurrentOffset);
-        mHeaderCurrentOffset = headerTarget;
     }
 
-    @Override
-    public void computeScroll() {
-        if (mScroller.computeScrollOffset()) {
-            int offsetY = mScroller.getCurrY();
-            moveTargetViewTo(offsetY);
-            invalidate();
-        } else if (mNeedScrollToInitPos) {
-            mNeedScrollToInitPos = false;
-            if (mTargetCurrentOffset == mTargetInitOffset) {
-                return;
+    /**
+     * 打开 translation 模式：头部、目标 View 和其余的层改用 translationY 移动，拖动和定位期间头部 View 提升为硬件层，
+     * 每一帧只更新 RenderNode 的属性，不用重新录制头部的 display list。
+     * 触摸事件的分发和父 View 的裁剪都会把 translation 算进去，所以点击区域和可见区域和原来一致。默认关闭
+     */
+    public void setUseTranslation(boolean useTranslation) {
+        if (mUseTranslation == useTranslation) {
+            return;
+        }
+        mUseTranslation = useTranslation;
+        if (!useTranslation) {
+            mHeaderLayerHelper.restore();
+            // 已经累积的 translationY 折算回布局位置
+            if (mTargetView != null) {
+                Util.foldTranslation(mTargetView);
             }
-            mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetInitOffset - mTargetCurrentOffset);
-            invalidate();
-        } else if (mNeedScrollToEndPos) {
-            mNeedScrollToEndPos = false;
-            if (mTargetCurrentOffset == mTargetEndOffset) {
-                return;
+            if (mHeaderView != null) {
+                Util.foldTranslation(mHeaderView);
+            }
+            for (int i = 0; i < mLayerCount; i++) {
+                Util.foldTranslation(mLayerViews[i]);
             }
-            mScroller.startScroll(0, mTargetCurrentOffset, 0, mTargetEndOffset - mTargetCurrentOffset);
-            invalidate();
         }
     }
+
+    public boolean isUseTranslation() {
+        return mUseTranslation;
+    }
+
+    /**
+     * 打开帧耗时监控：从开始拖动到定位动画结束，每次回调一份帧统计。传 null 关闭
+     */
+    public void setOnFrameStatsListener(FrameMonitor.Listener listener) {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+        mFrameMonitor = listener == null ? null : new FrameMonitor(getContext(), listener);
+    }
+
+    /**
+     * 设置手势汇总的回调，每次手势结束时回调一次。传 null 关闭
+     */
+    public void setOnScrollSessionListener(OnScrollSessionListener listener) {
+        mScrollSessionListener = listener;
+    }
+
+    /**
+     * 一次滚动开始：这次手势第一次真的有位移（父 View 消耗了，或者转给了子 View）时才打开帧耗时监控、开始记录手势汇总，
+     * 只接受了嵌套滚动、手指没有移动的手势不算。重复调用什么都不做
+     */
+    private void onScrollStarted() {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.start();
+        }
+        if (mScrollSessionListener != null) {
+            mScrollSession.begin(System.nanoTime(), mOffsetEngine.getTargetCurrentOffset());
+        }
+    }
+
+    /**
+     * 一次滚动结束：定位动画结束，或者没有动画可做
+     */
+    private void onScrollFinished() {
+        if (mFrameMonitor != null) {
+            mFrameMonitor.stop();
+        }
+        mHeaderLayerHelper.restore();
+        if (mScrollSession.end(System.nanoTime(), mOffsetEngine.getTargetCurrentOffset())
+                && mScrollSessionListener != null) {
+            mScrollSessionListener.onScrollSession(mScrollSession);
+        }
+        mScrollSession.reset();
+    }
+
+    /**
+     * 调试用的事件追踪，{@link ScrollTrace#ENABLED} 为 false 时返回 null
+     */
+    public ScrollTrace getScrollTrace() {
+        return mTrace;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        mScrollDriver.stop();
+        onScrollFinished();
+    }
+
+    private final FrameScrollDriver.Callback mScrollCallback = new FrameScrollDriver.Callback() {
+        @Override
+        public void onScrollFrame(int offset) {
+            moveTargetViewTo(offset);
+        }
+
+        @Override
+        public void onScrollEnd() {
+            // 只有弹簧定位一段动画，结束时已经停在停靠点上
+            onScrollFinished();
+        }
+    };
 }
@@ -0,0 +1,47 @@
+package org.cgspine.nestscroll;
+
+import android.graphics.Canvas;
+import android.view.View;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.RealObject;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowView;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 统计指定 View 的 draw(Canvas) 被调用的次数，用 @Config(shadows = DrawCountingShadowView.class) 打开。
+ * 软件绘制时父 View 每画一次都会调用子 View 的 draw，数到的就是子 View 被重画的次数
+ */
+@Implements(View.class)
+public class DrawCountingShadowView extends ShadowView {
+    private static final Map<View, int[]> sCounts = new HashMap<>();
+
+    @RealObject
+    private View mView;
+
+    public static void watch(View... views) {
+        sCounts.clear();
+        for (View view : views) {
+            sCounts.put(view, new int[1]);
+        }
+    }
+
+    public static int count(View view) {
+        return sCounts.get(view)[0];
+    }
+
+    @Implementation
+    public void draw(Canvas canvas) {
+        final int[] count = sCounts.get(mView);
+        if (count != null) {
+            count[0]++;
+        }
+        Shadow.directlyOn(mView, View.class, "draw",
+                ReflectionHelpers.ClassParameter.from(Canvas.class, canvas));
+    }
+}
@@ -0,0 +1,67 @@
+package org.cgspine.nestscroll;
+
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.cgspine.nestscroll.GestureReplayer.FRAME_MS;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * {@link FrameScrollDriver} 的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w411dp-h731dp")
+public class FrameScrollDriverTest {
+
+    @Test
+    public void spring_movesOnFirstFrame() throws Exception {
+        final int[] position = {0};
+        FrameScrollDriver driver = newDriver(position);
+        driver.spring(0, 3000, 300);
+        idleFrame();
+        assertTrue(driver.isRunning());
+        assertTrue("first frame at " + position[0], position[0] > 0);
+        driver.stop();
+    }
+
+    @Test
+    public void flingToBound_movesOnFirstFrame() throws Exception {
+        final int[] position = {0};
+        FrameScrollDriver driver = newDriver(position);
+        // 速度足够越过边界，走投影 fling
+        driver.flingToBound(0, 8000, 300);
+        idleFrame();
+        assertTrue(driver.isRunning());
+        assertTrue("first frame at " + position[0], position[0] > 0);
+        driver.stop();
+    }
+
+    private static FrameScrollDriver newDriver(final int[] position) {
+        return new FrameScrollDriver(ApplicationProvider.getApplicationContext(), new FrameScrollDriver.Callback() {
+            @Override
+            public void onScrollFrame(int offset) {
+                position[0] = offset;
+            }
+
+            @Override
+            public void onScrollEnd() {
+            }
+        });
+    }
+
+    /**
+     * 只走一帧
+     */
+    private static void idleFrame() {
+        shadowOf(Looper.getMainLooper()).idleFor(FRAME_MS, TimeUnit.MILLISECONDS);
+    }
+}
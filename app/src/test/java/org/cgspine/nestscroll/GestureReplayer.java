@@ -0,0 +1,463 @@
+package org.cgspine.nestscroll;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.InputDevice;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.coordinatorlayout.widget.CoordinatorLayout;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager.widget.ViewPager;
+
+import org.cgspine.nestscroll.engine.OnScrollSessionListener;
+import org.cgspine.nestscroll.one.EventDispatchPlanLayout;
+import org.cgspine.nestscroll.three.TargetBehavior;
+import org.cgspine.nestscroll.two.NestingScrollPlanLayout;
+import org.robolectric.Robolectric;
+import org.robolectric.android.controller.ActivityController;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * 测试用的手势重放：启动一个方案的 Activity，把 R.id.scrollLayout 套进一个计数的 FrameLayout，
+ * 按 16ms 一帧的节奏往里面喂 MotionEvent，最多两根手指。
+ *
+ * 三个方案的 Activity 都用同样的 id：R.id.scrollLayout 是容器，R.id.scroll_view 是目标 View，R.id.book_header 是头部。
+ * 容器或者子 View 的 requestLayout 都会一路传到外面的 FrameLayout，所以它的 measure / layout 次数为 0
+ * 就说明这段时间里容器一次都没有重新测量、布局。
+ */
+public class GestureReplayer {
+    public static final long FRAME_MS = 16;
+    /**
+     * 松手之后等待定位动画结束的时间
+     */
+    public static final long SETTLE_MS = 1500;
+
+    public static final String[] SCRIPTS = {"slowDrag", "fastFling", "reversal", "multiPointer"};
+
+    private final Class<? extends Activity> mActivityClass;
+    private final CountingFrameLayout mRoot;
+    private final View mTarget;
+    private final View mHeader;
+
+    private final MotionEvent.PointerProperties[] mProperties = {
+            new MotionEvent.PointerProperties(), new MotionEvent.PointerProperties()};
+    private final MotionEvent.PointerCoords[] mCoords = {
+            new MotionEvent.PointerCoords(), new MotionEvent.PointerCoords()};
+    private int mPointerCount;
+    private long mDownTime;
+
+    private int mEvents;
+    private long mDispatchNanos;
+    private long mFrameNanos;
+
+    public GestureReplayer(Class<? extends Activity> activityClass) {
+        this(activityClass, null, null);
+    }
+
+    /**
+     * 布局里的 original 换成 replacement 再启动，用来跑优化之前的实现。replacement 要有 (Context, AttributeSet) 的构造方法
+     */
+    public GestureReplayer(Class<? extends Activity> activityClass,
+                           final Class<? extends View> original, final Class<? extends View> replacement) {
+        mActivityClass = activityClass;
+        ActivityController<? extends Activity> controller = Robolectric.buildActivity(activityClass);
+        if (original != null) {
+            final Activity created = controller.get();
+            created.getLayoutInflater().setFactory2(new LayoutInflater.Factory2() {
+                @Override
+                public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+                    if (original.getName().equals(name)) {
+                        try {
+                            return replacement.getConstructor(Context.class, AttributeSet.class)
+                                    .newInstance(context, attrs);
+                        } catch (Exception e) {
+                            throw new AssertionError(e);
+                        }
+                    }
+                    // 其余的 View 还是交给 AppCompat
+                    return created instanceof AppCompatActivity
+                            ? ((AppCompatActivity) created).getDelegate().createView(parent, name, context, attrs)
+                            : null;
+                }
+
+                @Override
+                public View onCreateView(String name, Context context, AttributeSet attrs) {
+                    return onCreateView(null, name, context, attrs);
+                }
+            });
+        }
+        Activity activity = controller.setup().get();
+        View scrollLayout = activity.findViewById(R.id.scrollLayout);
+        mTarget = activity.findViewById(R.id.scroll_view);
+        mHeader = activity.findViewById(R.id.book_header);
+        mRoot = CountingFrameLayout.wrap(scrollLayout);
+        idle(SETTLE_MS);
+        mRoot.reset();
+        for (int i = 0; i < mProperties.length; i++) {
+            mProperties[i].id = i;
+            mProperties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+        }
+    }
+
+    public String getName() {
+        return mActivityClass.getSimpleName();
+    }
+
+    /**
+     * 套在容器外面的计数 FrameLayout
+     */
+    public CountingFrameLayout getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * 被测的容器，R.id.scrollLayout
+     */
+    public View getContainer() {
+        return mRoot.getChildAt(0);
+    }
+
+    public View getTarget() {
+        return mTarget;
+    }
+
+    public View getHeader() {
+        return mHeader;
+    }
+
+    public int getEventCount() {
+        return mEvents;
+    }
+
+    public long getDispatchNanos() {
+        return mDispatchNanos;
+    }
+
+    public long getFrameNanos() {
+        return mFrameNanos;
+    }
+
+    /**
+     * 屏幕中间一根手指的横坐标
+     */
+    public float centerX() {
+        return mRoot.getWidth() / 2f;
+    }
+
+    /**
+     * 脚本默认按下的位置，在目标 View 的列表里
+     */
+    public float startY() {
+        return mRoot.getHeight() * 0.8f;
+    }
+
+    public void setUseTranslation(boolean useTranslation) {
+        View container = getContainer();
+        if (container instanceof EventDispatchPlanLayout) {
+            ((EventDispatchPlanLayout) container).setUseTranslation(useTranslation);
+        } else if (container instanceof NestingScrollPlanLayout) {
+            ((NestingScrollPlanLayout) container).setUseTranslation(useTranslation);
+        } else {
+            getTargetBehavior().setUseTranslation(useTranslation);
+        }
+    }
+
+    public void setOnScrollSessionListener(OnScrollSessionListener listener) {
+        View container = getContainer();
+        if (container instanceof EventDispatchPlanLayout) {
+            ((EventDispatchPlanLayout) container).setOnScrollSessionListener(listener);
+        } else if (container instanceof NestingScrollPlanLayout) {
+            ((NestingScrollPlanLayout) container).setOnScrollSessionListener(listener);
+        } else {
+            getTargetBehavior().setOnScrollSessionListener(listener);
+        }
+    }
+
+    /**
+     * CoordinatorLayout 方案里目标 View 的 behavior
+     */
+    public TargetBehavior getTargetBehavior() {
+        CoordinatorLayout.LayoutParams lp = (CoordinatorLayout.LayoutParams) mTarget.getLayoutParams();
+        return (TargetBehavior) lp.getBehavior();
+    }
+
+    /**
+     * ViewPager 当前显示的那一页列表
+     */
+    public RecyclerView currentList() {
+        ViewPager pager = mTarget.findViewById(R.id.viewpager);
+        for (int i = 0; i < pager.getChildCount(); i++) {
+            View page = pager.getChildAt(i);
+            if (page instanceof RecyclerView && page.getLeft() == pager.getScrollX()) {
+                return (RecyclerView) page;
+            }
+        }
+        throw new AssertionError("no current page in " + getName());
+    }
+
+    /**
+     * 看到的位置：布局位置加上 translationY
+     */
+    public static int visualTop(View view) {
+        return view.getTop() + Math.round(view.getTranslationY());
+    }
+
+    /**
+     * 手指 pointerIndex 现在的纵坐标，容器的坐标系
+     */
+    public float pointerY(int pointerIndex) {
+        return mCoords[pointerIndex].y;
+    }
+
+    public int getPointerCount() {
+        return mPointerCount;
+    }
+
+    /**
+     * 打开软件绘制，在列表上短拖一下松手，再一帧一帧地走完定位动画，见 {@link #settleFrameByFrame()}。
+     * 需要 @Config(shadows = DrawCountingShadowView.class)
+     */
+    public int[] shortDragThenSettle() {
+        mRoot.setRenderOnPreDraw(true);
+        DrawCountingShadowView.watch(mTarget, mHeader);
+        down(centerX(), startY());
+        for (int i = 0; i < 5; i++) {
+            move(0, -8);
+        }
+        up();
+        return settleFrameByFrame();
+    }
+
+    /**
+     * 一帧一帧地走完正在进行的定位动画，用 {@link DrawCountingShadowView} 统计目标 View 和头部每一帧的 draw 次数，
+     * 需要先 {@link CountingFrameLayout#setRenderOnPreDraw(boolean)}
+     *
+     * @return {目标 View 动了的帧数, 画了但是目标 View 没有动的帧数, 单个 View 在一帧里最多的 draw 次数, draw 的总次数}
+     */
+    public int[] settleFrameByFrame() {
+        final int[] result = new int[4];
+        int lastTop = visualTop(mTarget);
+        for (long t = 0; t < SETTLE_MS; t += FRAME_MS) {
+            final int targetBefore = DrawCountingShadowView.count(mTarget);
+            final int headerBefore = DrawCountingShadowView.count(mHeader);
+            idle(FRAME_MS);
+            final int targetDraws = DrawCountingShadowView.count(mTarget) - targetBefore;
+            final int headerDraws = DrawCountingShadowView.count(mHeader) - headerBefore;
+            final int top = visualTop(mTarget);
+            if (top != lastTop) {
+                result[0]++;
+            } else if (targetDraws + headerDraws > 0) {
+                result[1]++;
+            }
+            lastTop = top;
+            result[2] = Math.max(result[2], Math.max(targetDraws, headerDraws));
+            result[3] += targetDraws + headerDraws;
+        }
+        return result;
+    }
+
+    /**
+     * 重放一个脚本，松手之后等定位动画结束
+     */
+    public void run(String script) {
+        final float x = centerX();
+        final float startY = startY();
+        switch (script) {
+            case "slowDrag":
+                down(x, startY);
+                for (int i = 0; i < 60; i++) {
+                    move(0, -8);
+                }
+                up();
+                break;
+            case "fastFling":
+                down(x, startY);
+                for (int i = 0; i < 10; i++) {
+                    move(0, -80);
+                }
+                up();
+                break;
+            case "reversal":
+                down(x, startY);
+                for (int round = 0; round < 3; round++) {
+                    for (int i = 0; i < 15; i++) {
+                        move(0, -20);
+                    }
+                    for (int i = 0; i < 15; i++) {
+                        move(0, 15);
+                    }
+                }
+                up();
+                break;
+            case "multiPointer":
+                down(x, startY);
+                // 第二根手指在交接之前按下，交接时屏幕上有两根手指
+                for (int i = 0; i < 5; i++) {
+                    move(0, -10);
+                }
+                pointerDown(x + 100, startY - 50);
+                for (int i = 0; i < 10; i++) {
+                    move(0, -10);
+                    move(1, -10);
+                }
+                // 第一根手指先抬起，第二根继续拖
+                pointerUp(0);
+                for (int i = 0; i < 10; i++) {
+                    move(0, -10);
+                }
+                up();
+                break;
+            default:
+                throw new IllegalArgumentException(script);
+        }
+        idle(SETTLE_MS);
+    }
+
+    public void down(float x, float y) {
+        mDownTime = SystemClock.uptimeMillis();
+        mPointerCount = 1;
+        mCoords[0].x = x;
+        mCoords[0].y = y;
+        dispatch(MotionEvent.ACTION_DOWN);
+    }
+
+    public void move(int pointerIndex, float dy) {
+        move(pointerIndex, 0, dy);
+    }
+
+    public void move(int pointerIndex, float dx, float dy) {
+        mCoords[pointerIndex].x += dx;
+        mCoords[pointerIndex].y += dy;
+        dispatch(MotionEvent.ACTION_MOVE);
+    }
+
+    public void pointerDown(float x, float y) {
+        mPointerCount = 2;
+        mCoords[1].x = x;
+        mCoords[1].y = y;
+        dispatch(MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
+    }
+
+    public void pointerUp(int pointerIndex) {
+        dispatch(MotionEvent.ACTION_POINTER_UP | (pointerIndex << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
+        if (pointerIndex == 0) {
+            mProperties[0].id = mProperties[1].id;
+            mCoords[0].copyFrom(mCoords[1]);
+        }
+        mPointerCount = 1;
+    }
+
+    public void up() {
+        dispatch(MotionEvent.ACTION_UP);
+    }
+
+    private void dispatch(int action) {
+        idle(FRAME_MS);
+        MotionEvent event = MotionEvent.obtain(mDownTime, SystemClock.uptimeMillis(), action, mPointerCount,
+                mProperties, mCoords, 0, 0, 1, 1, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+        final long start = System.nanoTime();
+        mRoot.dispatchTouchEvent(event);
+        mDispatchNanos += System.nanoTime() - start;
+        mEvents++;
+        event.recycle();
+    }
+
+    /**
+     * 让主线程往前走 ms 毫秒，期间到期的帧回调和消息都会执行
+     */
+    public void idle(long ms) {
+        final long start = System.nanoTime();
+        shadowOf(Looper.getMainLooper()).idleFor(ms, TimeUnit.MILLISECONDS);
+        mFrameNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * 统计自己收到的 measure / layout / draw 次数，套在被测的 ViewGroup 外面。
+     * Robolectric 没有真正的 Surface，draw 的次数用 OnPreDrawListener 的回调次数代替
+     */
+    public static class CountingFrameLayout extends FrameLayout implements ViewTreeObserver.OnPreDrawListener {
+        private int mMeasureCount;
+        private int mLayoutCount;
+        private int mDrawCount;
+        /**
+         * Robolectric 的窗口没有有效的 Surface，遍历走不到 draw。打开之后每次 onPreDraw 都用软件 Canvas 把自己画一遍，
+         * 子 View 的 draw 和 computeScroll 就和真机一样，每一帧被调用一次
+         */
+        private Canvas mRenderCanvas;
+
+        CountingFrameLayout(Context context) {
+            super(context);
+        }
+
+        public void setRenderOnPreDraw(boolean render) {
+            mRenderCanvas = render ? new Canvas(Bitmap.createBitmap(Math.max(1, getWidth()), Math.max(1, getHeight()),
+                    Bitmap.Config.ARGB_8888)) : null;
+        }
+
+        static CountingFrameLayout wrap(View view) {
+            ViewGroup parent = (ViewGroup) view.getParent();
+            final int index = parent.indexOfChild(view);
+            final ViewGroup.LayoutParams params = view.getLayoutParams();
+            parent.removeView(view);
+            CountingFrameLayout wrapper = new CountingFrameLayout(view.getContext());
+            wrapper.addView(view, new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            parent.addView(wrapper, index, params);
+            wrapper.getViewTreeObserver().addOnPreDrawListener(wrapper);
+            return wrapper;
+        }
+
+        public void reset() {
+            mMeasureCount = 0;
+            mLayoutCount = 0;
+            mDrawCount = 0;
+        }
+
+        public int getMeasureCount() {
+            return mMeasureCount;
+        }
+
+        public int getLayoutCount() {
+            return mLayoutCount;
+        }
+
+        public int getDrawCount() {
+            return mDrawCount;
+        }
+
+        @Override
+        protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+            mMeasureCount++;
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            mLayoutCount++;
+            super.onLayout(changed, left, top, right, bottom);
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            mDrawCount++;
+            if (mRenderCanvas != null) {
+                draw(mRenderCanvas);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.cgspine.nestscroll;
+
+import android.view.View;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.annotation.RealObject;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowView;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 统计容器对指定子 View 调用 measure 的次数，用 @Config(shadows = MeasureCountingShadowView.class) 打开。
+ * View.measure 在规格没变、也没有请求重新布局时会跳过 onMeasure，
+ * 所以数 onMeasure 看不出容器有没有白白地去测量子 View，只能数 measure 本身
+ */
+@Implements(View.class)
+public class MeasureCountingShadowView extends ShadowView {
+    private static final Map<View, int[]> sCounts = new HashMap<>();
+
+    @RealObject
+    private View mView;
+
+    public static void watch(View... views) {
+        sCounts.clear();
+        for (View view : views) {
+            sCounts.put(view, new int[1]);
+        }
+    }
+
+    public static int count(View view) {
+        return sCounts.get(view)[0];
+    }
+
+    @Implementation
+    public void measure(int widthMeasureSpec, int heightMeasureSpec) {
+        final int[] count = sCounts.get(mView);
+        if (count != null) {
+            count[0]++;
+        }
+        Shadow.directlyOn(mView, View.class, "measure",
+                ReflectionHelpers.ClassParameter.from(int.class, widthMeasureSpec),
+                ReflectionHelpers.ClassParameter.from(int.class, heightMeasureSpec));
+    }
+}
@@ -0,0 +1,103 @@
+package org.cgspine.nestscroll;
+
+import android.content.Context;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * {@link PageCache} 的测试：LRU 有上限，淘汰之后重新创建的页面回到原来的滚动位置
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PageCacheTest {
+
+    @Test
+    public void releasedPages_areBoundedAndReused() throws Exception {
+        FakePageCache cache = new FakePageCache(2);
+        View page0 = cache.acquire(0);
+        assertSame(page0, cache.acquire(0));
+        assertSame(page0, cache.getActivePage(0));
+        cache.release(0);
+        assertSame(page0, cache.acquire(0));
+        assertEquals(1, cache.mCreated.size());
+
+        // 模拟翻过很多个 tab：任何时候最多只有 2 个不在 ViewPager 里的页面
+        for (int i = 1; i < 20; i++) {
+            cache.acquire(i);
+            cache.release(i - 1);
+            assertEquals(Math.min(i, 2), cache.getCachedPageCount());
+        }
+        assertEquals(17, cache.mEvicted.size());
+        assertNotSame(page0, cache.acquire(0));
+    }
+
+    @Test
+    public void evictedPage_restoresPosition() throws Exception {
+        FakePageCache cache = new FakePageCache(1);
+        View page = cache.acquire(3);
+        page.setTag(new int[]{42, -17});
+        cache.release(3);
+        cache.acquire(4);
+        cache.release(4);
+        // 3 已经被 4 挤出去了
+        assertEquals(1, cache.mEvicted.size());
+
+        View recreated = cache.acquire(3);
+        assertNotSame(page, recreated);
+        int[] restored = (int[]) recreated.getTag();
+        assertEquals(42, restored[0]);
+        assertEquals(-17, restored[1]);
+    }
+
+    /**
+     * 用 tag 存 {位置, 偏移} 代替真实列表的滚动位置
+     */
+    private static class FakePageCache extends PageCache<View> {
+        final Context mContext = ApplicationProvider.getApplicationContext();
+        final List<View> mCreated = new ArrayList<>();
+        final List<View> mEvicted = new ArrayList<>();
+
+        FakePageCache(int maxCachedPages) {
+            super(maxCachedPages);
+        }
+
+        @Override
+        protected View createPage(int position) {
+            View view = new View(mContext);
+            view.setTag(new int[]{0, 0});
+            mCreated.add(view);
+            return view;
+        }
+
+        @Override
+        protected int getFirstVisiblePosition(View page) {
+            return ((int[]) page.getTag())[0];
+        }
+
+        @Override
+        protected int getFirstVisibleOffset(View page) {
+            return ((int[]) page.getTag())[1];
+        }
+
+        @Override
+        protected void restorePosition(View page, int position, int offset) {
+            page.setTag(new int[]{position, offset});
+        }
+
+        @Override
+        protected void onPageEvicted(View page) {
+            mEvicted.add(page);
+        }
+    }
+}
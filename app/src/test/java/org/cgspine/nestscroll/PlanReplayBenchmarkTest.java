@@ -0,0 +1,113 @@
+package org.cgspine.nestscroll;
+
+import android.app.Activity;
+import android.view.MotionEvent;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.cgspine.nestscroll.one.EventDispatchPlanActivity;
+import org.cgspine.nestscroll.three.CoordinatorLayoutActivity;
+import org.cgspine.nestscroll.two.NestingScrollActivity;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 三种方案的手势重放对比：同样的 MotionEvent 脚本（慢速拖动、快速 fling、来回换向、多指）分别喂给三个 Activity，
+ * 统计每个事件的主线程耗时、measure / layout / draw 的次数以及最终的偏移量，结论都用断言检查。
+ * 加上 -Dnestscroll.replay.report=true 运行时会把每个脚本的统计打印到标准输出，方便对比。
+ *
+ * 重放和计数见 {@link GestureReplayer}；各个方案自己的行为测试放在各自的测试类里。
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w411dp-h731dp")
+public class PlanReplayBenchmarkTest {
+    /**
+     * 是否把统计打印到标准输出，默认关闭
+     */
+    private static final boolean REPORT = Boolean.getBoolean("nestscroll.replay.report");
+
+    @Test
+    public void replay_eventDispatchPlan() throws Exception {
+        replayAll(EventDispatchPlanActivity.class);
+    }
+
+    @Test
+    public void replay_nestingScrollPlan() throws Exception {
+        replayAll(NestingScrollActivity.class);
+    }
+
+    @Test
+    public void replay_coordinatorLayoutPlan() throws Exception {
+        replayAll(CoordinatorLayoutActivity.class);
+    }
+
+    private void replayAll(Class<? extends Activity> activityClass) {
+        for (String script : GestureReplayer.SCRIPTS) {
+            GestureReplayer replayer = new GestureReplayer(activityClass);
+            final String name = replayer.getName() + "/" + script;
+            final int initTop = replayer.getTarget().getTop();
+            final List<String> badDowns = watchDowns(replayer);
+            replayer.run(script);
+            report(replayer, script);
+            // 定位动画结束后只会停在两端
+            final int top = replayer.getTarget().getTop();
+            assertTrue(name + " stopped at " + top, top == initTop || top == 0);
+            // 拖动和定位都只移动子 View，不能触发容器的 measure / layout
+            assertEquals(name + " measure passes", 0, replayer.getRoot().getMeasureCount());
+            assertEquals(name + " layout passes", 0, replayer.getRoot().getLayoutCount());
+            // 列表收到的 down，包括交接时补发的那个，都只带一根手指，位置是最后按下的那根手指
+            assertTrue(name + " " + badDowns, badDowns.isEmpty());
+        }
+    }
+
+    /**
+     * 检查列表收到的每一个 down，不对的记下来
+     */
+    private static List<String> watchDowns(final GestureReplayer replayer) {
+        final List<String> badDowns = new ArrayList<>();
+        final RecyclerView list = replayer.currentList();
+        list.addOnItemTouchListener(new RecyclerView.SimpleOnItemTouchListener() {
+            @Override
+            public boolean onInterceptTouchEvent(RecyclerView rv, MotionEvent e) {
+                if (e.getActionMasked() != MotionEvent.ACTION_DOWN) {
+                    return false;
+                }
+                final int[] listLocation = new int[2];
+                final int[] rootLocation = new int[2];
+                rv.getLocationInWindow(listLocation);
+                replayer.getRoot().getLocationInWindow(rootLocation);
+                final float y = e.getY() + listLocation[1] - rootLocation[1];
+                final float fingerY = replayer.pointerY(replayer.getPointerCount() - 1);
+                if (e.getPointerCount() != 1 || Math.abs(y - fingerY) > 1) {
+                    badDowns.add("pointers=" + e.getPointerCount() + " y=" + y + " finger=" + fingerY);
+                }
+                return false;
+            }
+        });
+        return badDowns;
+    }
+
+    private static void report(GestureReplayer replayer, String script) {
+        if (!REPORT) {
+            return;
+        }
+        final int events = replayer.getEventCount();
+        final GestureReplayer.CountingFrameLayout root = replayer.getRoot();
+        System.out.println(String.format(Locale.US,
+                "%-26s %-12s events=%3d dispatch=%7.1fus/event frames=%6.1fms measure=%3d layout=%3d draw=%3d"
+                        + " targetTop=%4d headerTop=%4d",
+                replayer.getName(), script, events,
+                events == 0 ? 0 : replayer.getDispatchNanos() / 1000f / events, replayer.getFrameNanos() / 1e6f,
+                root.getMeasureCount(), root.getLayoutCount(), root.getDrawCount(),
+                replayer.getTarget().getTop(), replayer.getHeader().getTop()));
+    }
+}
@@ -0,0 +1,188 @@
+package org.cgspine.nestscroll.data;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link PagedRowList} 的 JVM 单元测试，后台线程和主线程都用手动执行的队列代替
+ */
+public class PagedRowListTest {
+
+    /**
+     * 攒着任务，测试里手动执行
+     */
+    private static class QueueExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    private final QueueExecutor mBackground = new QueueExecutor();
+    private final QueueExecutor mMain = new QueueExecutor();
+    private final List<int[]> mLoaded = new ArrayList<>();
+
+    private PagedRowList create(int count, int maxPages) {
+        PagedRowList list = new PagedRowList(new NumberedRowSource(count), 10, maxPages, mBackground, mMain);
+        list.setCallback(new PagedRowList.Callback() {
+            @Override
+            public void onRowsLoaded(int start, int count) {
+                mLoaded.add(new int[]{start, count});
+            }
+        });
+        return list;
+    }
+
+    private void drain() {
+        while (!mBackground.tasks.isEmpty() || !mMain.tasks.isEmpty()) {
+            mBackground.runAll();
+            mMain.runAll();
+        }
+    }
+
+    private static String text(RowPage page, int position) {
+        return new String(page.getChars(), page.getRowStart(position), page.getRowLength(position));
+    }
+
+    @Test
+    public void firstPage_loadsInBackground() throws Exception {
+        PagedRowList list = create(1000000, 8);
+        // 第一次绑定也不在主线程读数据源，先显示占位内容
+        assertNull(list.getPage(3));
+        assertEquals(0, list.getLoadedPageCount());
+        // 这一页和后面一页在后台装载
+        assertEquals(2, mBackground.tasks.size());
+        drain();
+        RowPage page = list.getPage(3);
+        assertNotNull(page);
+        assertEquals("item 3", text(page, 3));
+        assertEquals("item 9", text(page, 9));
+        assertTrue(containsRange(0, 10));
+    }
+
+    @Test
+    public void prefetch_loadsBeforeFirstBind() throws Exception {
+        PagedRowList list = create(1000000, 8);
+        list.prefetch(0);
+        assertEquals(0, list.getLoadedPageCount());
+        assertEquals(1, mBackground.tasks.size());
+        // 列表显示之前后台已经装载完，第一次绑定直接拿到数据
+        drain();
+        RowPage page = list.getPage(3);
+        assertNotNull(page);
+        assertEquals("item 3", text(page, 3));
+        // 只剩相邻的页在后台预取
+        assertEquals(1, mBackground.tasks.size());
+    }
+
+    @Test
+    public void unloadedRow_isNullUntilCallback() throws Exception {
+        PagedRowList list = create(1000000, 8);
+        list.getPage(0);
+        assertNull(list.getPage(55));
+        assertTrue(mLoaded.isEmpty());
+        drain();
+        RowPage page = list.getPage(55);
+        assertNotNull(page);
+        assertEquals("item 55", text(page, 55));
+        assertTrue(containsRange(50, 10));
+    }
+
+    @Test
+    public void window_isBoundedAndPagesAreReused() throws Exception {
+        PagedRowList list = create(1000000, 5);
+        List<RowPage> seen = new ArrayList<>();
+        for (int position = 0; position < 2000; position++) {
+            RowPage page = list.getPage(position);
+            drain();
+            if (page == null) {
+                page = list.getPage(position);
+            }
+            assertNotNull(page);
+            assertEquals("item " + position, text(page, position));
+            assertTrue(list.getLoadedPageCount() <= 5);
+            if (!containsSame(seen, page)) {
+                seen.add(page);
+            }
+        }
+        // 划过了 200 页，但对象只有窗口加上在途的那几个
+        assertTrue("allocated " + seen.size(), seen.size() <= 8);
+    }
+
+    @Test
+    public void fling_skipsStalePages() throws Exception {
+        PagedRowList list = create(1000000, 5);
+        list.getPage(0);
+        // 一口气划过 100 页，中间的请求轮到后台时都已经过时
+        for (int position = 0; position < 1000; position += 10) {
+            list.getPage(position);
+        }
+        mLoaded.clear();
+        drain();
+        for (int[] range : mLoaded) {
+            assertTrue("loaded stale page at " + range[0], range[0] >= 960);
+        }
+        assertNotNull(list.getPage(990));
+    }
+
+    @Test
+    public void lastPage_isPartial() throws Exception {
+        PagedRowList list = create(25, 8);
+        list.getPage(0);
+        list.getPage(24);
+        drain();
+        RowPage page = list.getPage(24);
+        assertNotNull(page);
+        assertEquals(5, page.getRowCount());
+        assertEquals("item 24", text(page, 24));
+        assertTrue(containsRange(20, 5));
+    }
+
+    @Test
+    public void rowPage_appendsDigits() throws Exception {
+        RowPage page = new RowPage(3);
+        page.reset(7);
+        page.beginRow();
+        page.append(0);
+        page.endRow();
+        page.beginRow();
+        page.append("n=").append(Integer.MAX_VALUE);
+        page.endRow();
+        assertEquals("0", text(page, 7));
+        assertEquals("n=" + Integer.MAX_VALUE, text(page, 8));
+    }
+
+    private boolean containsRange(int start, int count) {
+        for (int[] range : mLoaded) {
+            if (range[0] == start && range[1] == count) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean containsSame(List<RowPage> pages, RowPage page) {
+        for (RowPage p : pages) {
+            if (p == page) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
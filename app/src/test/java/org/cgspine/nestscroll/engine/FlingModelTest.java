@@ -0,0 +1,55 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link FlingModel} 的 JVM 单元测试
+ */
+public class FlingModelTest {
+
+    @Test
+    public void distanceAndVelocity_areInverse() throws Exception {
+        FlingModel model = new FlingModel(3f, FlingModel.DEFAULT_FRICTION);
+        for (float v = 100; v <= 20000; v *= 1.7f) {
+            assertEquals(v, model.getVelocity(model.getDistance(v)), v * 1e-4);
+        }
+        assertTrue(model.getDistance(8000) > model.getDistance(4000));
+        assertEquals(0, model.getDistance(0), 0);
+    }
+
+    @Test
+    public void unconsumed_keepsSignAndShrinksWithRange() throws Exception {
+        FlingModel model = new FlingModel(3f, FlingModel.DEFAULT_FRICTION);
+        final float v = -6000;
+        final int distance = (int) model.getDistance(v);
+        assertEquals(v, model.getUnconsumedVelocity(v, 0), 0);
+        assertEquals(0, model.getUnconsumedVelocity(v, distance + 1), 0);
+        float last = v;
+        for (int available = 1; available < distance; available += distance / 10) {
+            float unconsumed = model.getUnconsumedVelocity(v, available);
+            assertTrue(unconsumed < 0);
+            assertTrue(unconsumed >= last);
+            last = unconsumed;
+        }
+        // 剩下的速度正好能滑完剩下的距离
+        final int half = distance / 2;
+        assertEquals(distance - half, model.getDistance(model.getUnconsumedVelocity(v, half)), 1);
+    }
+
+    @Test
+    public void velocity_isConservedAcrossBoundary() throws Exception {
+        FlingModel model = new FlingModel(2.625f, FlingModel.DEFAULT_FRICTION);
+        for (float v = 1000; v <= 16000; v += 1500) {
+            final double total = model.getDistance(v);
+            for (int boundary = 50; boundary < total; boundary += 400) {
+                // 列表滑过 boundary 之后交出去的速度，接着滑的距离加上 boundary 就是整段 fling 的距离
+                final float handedOff = model.getUnconsumedVelocity(v, boundary);
+                assertEquals(total, boundary + model.getDistance(handedOff), 1);
+                assertTrue(handedOff > 0 && handedOff < v);
+            }
+        }
+    }
+}
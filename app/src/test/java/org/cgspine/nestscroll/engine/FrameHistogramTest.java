@@ -0,0 +1,54 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link FrameHistogram} 的 JVM 单元测试
+ */
+public class FrameHistogramTest {
+    private static final long FRAME_NANOS = 16666667L;
+
+    @Test
+    public void percentilesAndDroppedFrames() throws Exception {
+        FrameHistogram histogram = new FrameHistogram(FRAME_NANOS);
+        for (int i = 0; i < 95; i++) {
+            histogram.record(FRAME_NANOS);
+        }
+        for (int i = 0; i < 4; i++) {
+            // 每帧丢一帧
+            histogram.record(2 * FRAME_NANOS);
+        }
+        // 一次 100ms 的卡顿，丢了 5 帧
+        histogram.record(100000000L);
+
+        assertEquals(100, histogram.getFrameCount());
+        assertEquals(9, histogram.getDroppedFrames());
+        assertEquals(17, histogram.getPercentileMs(50));
+        assertEquals(17, histogram.getPercentileMs(95));
+        assertEquals(34, histogram.getPercentileMs(99));
+        assertEquals(101, histogram.getPercentileMs(100));
+        assertEquals(100000000L, histogram.getLongestFrameNanos());
+    }
+
+    @Test
+    public void jitterIsNotDropped() throws Exception {
+        FrameHistogram histogram = new FrameHistogram(FRAME_NANOS);
+        histogram.record(FRAME_NANOS + 5000000L);
+        histogram.record(FRAME_NANOS - 5000000L);
+        assertEquals(0, histogram.getDroppedFrames());
+    }
+
+    @Test
+    public void overflowAndReset() throws Exception {
+        FrameHistogram histogram = new FrameHistogram(FRAME_NANOS);
+        histogram.record(2000000000L);
+        assertEquals(FrameHistogram.MAX_TRACKED_MS + 1, histogram.getPercentileMs(50));
+        assertEquals(2000000000L, histogram.getLongestFrameNanos());
+        histogram.reset();
+        assertEquals(0, histogram.getFrameCount());
+        assertEquals(0, histogram.getPercentileMs(99));
+        assertEquals(0L, histogram.getLongestFrameNanos());
+    }
+}
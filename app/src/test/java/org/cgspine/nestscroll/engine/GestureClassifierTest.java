@@ -0,0 +1,73 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link GestureClassifier} 的 JVM 单元测试
+ */
+public class GestureClassifierTest {
+    private static final float SLOP = 16;
+    private static final float MIN_VELOCITY = 100;
+
+    /**
+     * 每 8ms 一个采样，每次移动 (stepX, stepY)，返回判定时用的采样数，一直没判定时返回 -1
+     */
+    private static int feed(GestureClassifier classifier, float stepX, float stepY, int maxSamples) {
+        classifier.reset(0, 100, 100);
+        for (int i = 1; i <= maxSamples; i++) {
+            if (classifier.addSample(i * 8, 100 + stepX * i, 100 + stepY * i) != GestureClassifier.UNDECIDED) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void fastVertical_decidesBeforeHalfSlop() throws Exception {
+        GestureClassifier classifier = new GestureClassifier(SLOP, MIN_VELOCITY);
+        // 每个采样 3px，第二个采样时只走了 6px，还不到半个 slop，靠速度方向判定
+        assertEquals(2, feed(classifier, 0.5f, 3, 10));
+        assertEquals(GestureClassifier.VERTICAL, classifier.getDecision());
+        assertEquals(16, classifier.getDecisionDelayMs());
+    }
+
+    @Test
+    public void horizontalSwipe_isHorizontal() throws Exception {
+        GestureClassifier classifier = new GestureClassifier(SLOP, MIN_VELOCITY);
+        assertEquals(2, feed(classifier, -6, 1, 10));
+        assertEquals(GestureClassifier.HORIZONTAL, classifier.getDecision());
+    }
+
+    @Test
+    public void slowVertical_waitsForHalfSlop() throws Exception {
+        GestureClassifier classifier = new GestureClassifier(SLOP, 10000);
+        // 速度不够快，走满半个 slop 才判定
+        assertEquals(4, feed(classifier, 0, 2, 10));
+        assertEquals(GestureClassifier.VERTICAL, classifier.getDecision());
+    }
+
+    @Test
+    public void diagonal_fallsBackToFullSlop() throws Exception {
+        GestureClassifier classifier = new GestureClassifier(SLOP, MIN_VELOCITY);
+        // 接近 45°，走满一个 slop 按位移大的轴判定
+        assertEquals(4, feed(classifier, 3, 4, 10));
+        assertEquals(GestureClassifier.VERTICAL, classifier.getDecision());
+        assertEquals(4, feed(classifier, 4, -3, 10));
+        assertEquals(GestureClassifier.HORIZONTAL, classifier.getDecision());
+    }
+
+    @Test
+    public void decision_isStickyForTheGesture() throws Exception {
+        GestureClassifier classifier = new GestureClassifier(SLOP, MIN_VELOCITY);
+        classifier.reset(0, 0, 0);
+        assertEquals(GestureClassifier.VERTICAL, classifier.addSample(8, 0, 10));
+        // 之后变成横向也不改
+        assertEquals(GestureClassifier.VERTICAL, classifier.addSample(16, 200, 10));
+        assertEquals(8, classifier.getDecisionDelayMs());
+        classifier.reset(100, 0, 0);
+        assertEquals(GestureClassifier.UNDECIDED, classifier.getDecision());
+        assertEquals(-1, classifier.getDecisionDelayMs());
+    }
+}
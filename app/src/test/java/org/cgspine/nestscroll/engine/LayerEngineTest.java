@@ -0,0 +1,70 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link LayerEngine} 的 JVM 单元测试
+ */
+public class LayerEngineTest {
+
+    @Test
+    public void layers_moveIndependently() throws Exception {
+        LayerEngine engine = new LayerEngine(300, 0);
+        int cover = engine.addLayer(90, 0, null);
+        int title = engine.addLayer(0, -60, HeaderMapping.parallax(0.5f));
+        int filter = engine.addLayer(250, 0, HeaderMapping.stepped(2));
+        assertEquals(90, engine.getLayerOffset(cover));
+        assertEquals(0, engine.getLayerOffset(title));
+        assertEquals(250, engine.getLayerOffset(filter));
+
+        engine.setTargetOffset(150);
+        assertEquals(45, engine.getLayerOffset(cover));
+        assertEquals(-45, engine.getLayerDelta(cover));
+        assertEquals(-60, engine.getLayerOffset(title));
+        assertEquals(HeaderMapping.stepped(2).map(150, 300, 0, 250, 0), engine.getLayerOffset(filter));
+
+        engine.setTargetOffset(0);
+        assertEquals(0, engine.getLayerOffset(cover));
+        assertEquals(-60, engine.getLayerOffset(title));
+        assertEquals(0, engine.getLayerOffset(filter));
+    }
+
+    @Test
+    public void deltas_sumToDistance() throws Exception {
+        LayerEngine engine = new LayerEngine(300, 0);
+        for (int i = 0; i < 9; i++) {
+            // 超过初始容量，数组会扩容
+            engine.addLayer(30 * i, -i, HeaderMapping.eased());
+        }
+        int[] moved = new int[engine.getLayerCount()];
+        for (int t = 300; t >= 0; t -= 7) {
+            engine.setTargetOffset(t);
+            for (int i = 0; i < moved.length; i++) {
+                moved[i] += engine.getLayerDelta(i);
+            }
+        }
+        engine.setTargetOffset(0);
+        for (int i = 0; i < moved.length; i++) {
+            moved[i] += engine.getLayerDelta(i);
+            assertEquals(-i - 30 * i, moved[i]);
+        }
+    }
+
+    @Test
+    public void rangeChange_rebakes() throws Exception {
+        LayerEngine engine = new LayerEngine(300, 0);
+        int layer = engine.addLayer(90, 0, null);
+        engine.setTargetOffset(150);
+        assertEquals(45, engine.getLayerOffset(layer));
+        engine.setTargetOffsets(600, 0);
+        engine.setTargetOffset(150);
+        assertEquals(22, engine.getLayerOffset(layer));
+
+        engine.clearLayers();
+        assertEquals(0, engine.getLayerCount());
+        layer = engine.addLayer(100, 0, null);
+        assertEquals(25, engine.getLayerOffset(layer));
+    }
+}
@@ -0,0 +1,94 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link OffsetEngine} 的 JVM 单元测试
+ */
+public class OffsetEngineTest {
+
+    @Test
+    public void applyDelta_clampsAtEndOffset() throws Exception {
+        OffsetEngine engine = new OffsetEngine(300, 0, 90, 0);
+        assertEquals(-200, engine.applyDelta(-200));
+        assertEquals(-100, engine.applyDelta(-250));
+        assertEquals(0, engine.getTargetCurrentOffset());
+        assertEquals(0, engine.applyDelta(-10));
+        assertEquals(0, engine.getConsumableUp());
+    }
+
+    @Test
+    public void headerOffset_followsTargetLinearly() throws Exception {
+        OffsetEngine engine = new OffsetEngine(300, 0, 90, 0);
+        engine.applyAbsolute(150);
+        assertEquals(45, engine.getHeaderCurrentOffset());
+        assertEquals(-45, engine.getHeaderDelta());
+        engine.applyAbsolute(0);
+        assertEquals(0, engine.getHeaderCurrentOffset());
+        engine.applyAbsolute(500);
+        assertEquals(90, engine.getHeaderCurrentOffset());
+    }
+
+    @Test
+    public void headerOffset_nonZeroEndOffsets() throws Exception {
+        // CoverBehavior 之前的实现在这种情况下因为运算符优先级算错了
+        OffsetEngine engine = new OffsetEngine(210, 10, 60, 20);
+        engine.applyAbsolute(110);
+        assertEquals(40, engine.getHeaderCurrentOffset());
+    }
+
+    @Test
+    public void setTargetOffsets_remapsHeader() throws Exception {
+        OffsetEngine engine = new OffsetEngine(0, 0, 90, 0);
+        engine.setTargetOffsets(300, 0);
+        engine.applyAbsolute(300);
+        assertEquals(90, engine.getHeaderCurrentOffset());
+        engine.setTargetOffsets(600, 0);
+        assertEquals(45, engine.getHeaderCurrentOffset());
+        assertEquals(-45, engine.getHeaderDelta());
+    }
+
+    @Test
+    public void headerMapping_tableMatchesCurve() throws Exception {
+        OffsetEngine engine = new OffsetEngine(300, 0, 90, 0);
+        HeaderMapping eased = HeaderMapping.eased();
+        engine.setHeaderMapping(eased);
+        for (int t = 0; t <= 300; t++) {
+            engine.applyAbsolute(t);
+            int expected = t == 0 ? 0 : t == 300 ? 90 : eased.map(t, 300, 0, 90, 0);
+            assertEquals(expected, engine.getHeaderCurrentOffset());
+        }
+    }
+
+    @Test
+    public void headerMapping_switchRemapsHeader() throws Exception {
+        OffsetEngine engine = new OffsetEngine(300, 0, 90, 0);
+        engine.applyAbsolute(200);
+        assertEquals(60, engine.getHeaderCurrentOffset());
+        // 三级阶梯：[0, 100) -> 0, [100, 200) -> 30, [200, 300) -> 60
+        engine.setHeaderMapping(HeaderMapping.stepped(3));
+        assertEquals(60, engine.getHeaderCurrentOffset());
+        engine.applyAbsolute(199);
+        assertEquals(30, engine.getHeaderCurrentOffset());
+        assertEquals(-30, engine.getHeaderDelta());
+        // 视差 0.5：target 离初始位置 101px，header 移动 50.5px
+        engine.setHeaderMapping(HeaderMapping.parallax(0.5f));
+        assertEquals(39, engine.getHeaderCurrentOffset());
+        assertEquals(9, engine.getHeaderDelta());
+    }
+
+    @Test
+    public void headerMapping_rangeChangeRebakes() throws Exception {
+        OffsetEngine engine = new OffsetEngine(100, 0, 100, 0);
+        engine.setHeaderMapping(HeaderMapping.parallax(1f));
+        engine.applyAbsolute(50);
+        assertEquals(50, engine.getHeaderCurrentOffset());
+        engine.setTargetOffsets(400, 0);
+        // target 离初始位置 350px，header 已经到边界
+        assertEquals(0, engine.getHeaderCurrentOffset());
+        engine.applyAbsolute(350);
+        assertEquals(50, engine.getHeaderCurrentOffset());
+    }
+}
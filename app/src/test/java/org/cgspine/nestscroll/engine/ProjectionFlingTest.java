@@ -0,0 +1,46 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ProjectionFling} 的 JVM 单元测试：落点和预测一致、到达边界时剩下的速度
+ */
+public class ProjectionFlingTest {
+    private static final float FRAME_SECONDS = 1 / 60f;
+
+    @Test
+    public void landing_matchesPrediction() throws Exception {
+        SpringSettler settler = new SpringSettler();
+        ProjectionFling fling = new ProjectionFling();
+        fling.start(200, -2000);
+        assertEquals(settler.predictLanding(200, -2000), fling.getLanding(), 0.01f);
+        assertEquals(fling.getLanding(), fling.getPosition(10), 0.01f);
+        // 摩擦系数 0.98 的 Scroller.fling 同样的速度只滑十几个像素，离结束位置 0 还差得远
+        assertTrue(new FlingModel(2.625f, 0.98f).getDistance(-2000) < 200);
+    }
+
+    @Test
+    public void reachesBound_withReleaseDirectionVelocity() throws Exception {
+        ProjectionFling fling = new ProjectionFling();
+        fling.start(200, -2000);
+        assertEquals(-2000f, fling.getVelocity(0), 0.01f);
+        int frames = 0;
+        float last = 200;
+        while (fling.getPosition(++frames * FRAME_SECONDS) > 0) {
+            // 单调减速，不会越过之后再回来
+            final float position = fling.getPosition(frames * FRAME_SECONDS);
+            assertTrue(position < last);
+            last = position;
+            assertTrue(frames < 60);
+        }
+        assertTrue("frames " + frames, frames <= 15);
+        // 到达 0 时剩下一半的速度：落点在 -200，已经走了一半的距离
+        assertEquals(-1000f, fling.getVelocityAt(0), 0.01f);
+        assertTrue(Math.abs(fling.getVelocity(frames * FRAME_SECONDS)) <= 1000);
+        // 到不了的位置没有剩余速度
+        assertEquals(0f, fling.getVelocityAt(-300), 0f);
+    }
+}
@@ -0,0 +1,55 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ScrollDecision} 的 JVM 单元测试
+ */
+public class ScrollDecisionTest {
+
+    @Test
+    public void handOff_onlyWhenReachingEndAndChildCanScroll() throws Exception {
+        OffsetEngine engine = new OffsetEngine(300, 0, 90, 0);
+        engine.applyAbsolute(50);
+        assertFalse(ScrollDecision.reachesEnd(engine, -49));
+        assertTrue(ScrollDecision.reachesEnd(engine, -50));
+        assertFalse(ScrollDecision.reachesEnd(engine, 10));
+        assertTrue(ScrollDecision.shouldHandOff(engine, -80, 1000));
+        // 列表滚不动：父 View 停在结束位置继续持有手势
+        assertFalse(ScrollDecision.shouldHandOff(engine, -80, 0));
+        // 结束位置之外的 30px 转给列表，列表只剩 20px 时只转 20px
+        assertEquals(-30, ScrollDecision.forwardedOnHandOff(-80, -50, 1000));
+        assertEquals(-20, ScrollDecision.forwardedOnHandOff(-80, -50, 20));
+    }
+
+    @Test
+    public void canStartDrag_downwardOrBeforeEnd() throws Exception {
+        OffsetEngine engine = new OffsetEngine(300, 0, 90, 0);
+        assertTrue(ScrollDecision.canStartDrag(engine, -10));
+        engine.applyAbsolute(0);
+        // 已经收起：只有往下拖才重新接管
+        assertFalse(ScrollDecision.canStartDrag(engine, -10));
+        assertTrue(ScrollDecision.canStartDrag(engine, 10));
+    }
+
+    @Test
+    public void nestedScroll_parentTakesOnlyAtListTop() throws Exception {
+        OffsetEngine engine = new OffsetEngine(300, 0, 90, 0);
+        engine.applyAbsolute(200);
+        assertEquals(-40, ScrollDecision.preScrollTargetDelta(40, false));
+        assertEquals(0, ScrollDecision.preScrollTargetDelta(40, true));
+        assertEquals(0, ScrollDecision.preScrollTargetDelta(-40, false));
+
+        assertEquals(150, ScrollDecision.scrollTargetDelta(engine, -150, false, false));
+        assertEquals(0, ScrollDecision.scrollTargetDelta(engine, -150, true, false));
+        assertEquals(0, ScrollDecision.scrollTargetDelta(engine, 150, false, false));
+        // fling 只展开到初始位置
+        assertEquals(100, ScrollDecision.scrollTargetDelta(engine, -150, false, true));
+        engine.applyAbsolute(300);
+        assertEquals(0, ScrollDecision.scrollTargetDelta(engine, -150, false, true));
+    }
+}
@@ -0,0 +1,61 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ScrollSession} 的 JVM 单元测试
+ */
+public class ScrollSessionTest {
+
+    @Test
+    public void nestedGesture_aggregatesOnce() throws Exception {
+        ScrollSession session = new ScrollSession();
+        session.begin(1000, 300);
+        // 往上滑 3 次，每次 50px，父 View 只能再消耗 120px
+        session.onPreScroll(50, 50);
+        session.onPreScroll(50, 50);
+        session.onPreScroll(50, 20);
+        // 往下滑，子 View 没消耗完的 40px 被父 View 拿走
+        session.onPreScroll(-60, 0);
+        session.onScroll(-40);
+        session.onFlingHandedOff(-2500);
+        session.onRelease(5000);
+        // 重复的 release 不覆盖第一次
+        session.onRelease(6000);
+        assertTrue(session.end(9000, 220));
+
+        assertEquals(4, session.getEventCount());
+        assertEquals(120, session.getConsumedByParent());
+        assertEquals(90, session.getForwardedToChild());
+        assertEquals(40, session.getTakenFromUnconsumed());
+        assertEquals(-2500f, session.getFlingVelocity(), 0f);
+        assertEquals(8000, session.getDurationNanos());
+        assertEquals(4000, session.getSettleNanos());
+        assertEquals(300, session.getStartOffset());
+        assertEquals(220, session.getEndOffset());
+    }
+
+    @Test
+    public void inactive_ignoresEverything() throws Exception {
+        ScrollSession session = new ScrollSession();
+        session.onPreScroll(50, 50);
+        session.onDrag(10, 0);
+        assertFalse(session.end(100, 0));
+        assertEquals(0, session.getEventCount());
+
+        session.begin(0, 0);
+        session.onDrag(-10, -5);
+        // 已经开始时再 begin 不会清掉数据
+        session.begin(50, 100);
+        assertTrue(session.end(100, 0));
+        assertEquals(1, session.getEventCount());
+        assertEquals(5, session.getForwardedToChild());
+        // 没有 release 时定位时间为 0
+        assertEquals(0, session.getSettleNanos());
+        assertFalse(session.end(200, 0));
+    }
+}
@@ -0,0 +1,52 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ScrollTrace} 的 JVM 单元测试
+ */
+public class ScrollTraceTest {
+
+    @Test
+    public void record_overwritesOldestWhenFull() throws Exception {
+        ScrollTrace trace = new ScrollTrace(4);
+        for (int i = 0; i < 6; i++) {
+            trace.record(ScrollTrace.KIND_DRAG, i, 0, 100 - i);
+        }
+        assertEquals(4, trace.size());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        trace.dumpBinary(new DataOutputStream(bytes));
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(1, in.readInt());
+        assertEquals(4, in.readInt());
+        for (int i = 2; i < 6; i++) {
+            assertEquals(ScrollTrace.KIND_DRAG, in.readInt());
+            assertEquals(i, in.readInt());
+            assertEquals(0, in.readInt());
+            assertEquals(100 - i, in.readInt());
+            in.readLong();
+        }
+    }
+
+    @Test
+    public void dumpText_oneLinePerRecord() throws Exception {
+        ScrollTrace trace = new ScrollTrace(8);
+        trace.record(ScrollTrace.KIND_NESTED_PRE_SCROLL, 12, 12, 88);
+        trace.record(ScrollTrace.KIND_NESTED_SCROLL, -5, 5, 93);
+        StringBuilder out = new StringBuilder();
+        trace.dumpText(out);
+        String[] lines = out.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("NESTED_PRE_SCROLL dy=12 consumed=12 offset=88"));
+        assertTrue(lines[1].contains("NESTED_SCROLL dy=-5 consumed=5 offset=93"));
+    }
+}
@@ -0,0 +1,79 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SpringSettler} 的 JVM 单元测试：停靠点选择、停下来需要的帧数以及松手瞬间的速度连续性
+ */
+public class SpringSettlerTest {
+    private static final float FRAME_SECONDS = 1 / 60f;
+
+    @Test
+    public void chooseAnchor_zeroVelocityMatchesMidpoint() throws Exception {
+        SpringSettler settler = new SpringSettler();
+        assertEquals(0, settler.chooseAnchor(150, 0, 300, 0));
+        assertEquals(0, settler.chooseAnchor(149, 0, 300, 0));
+        assertEquals(300, settler.chooseAnchor(151, 0, 300, 0));
+    }
+
+    @Test
+    public void chooseAnchor_followsPredictedLanding() throws Exception {
+        SpringSettler settler = new SpringSettler();
+        // 还没过中点，但是往上甩得很快，应该收起
+        assertEquals(0, settler.chooseAnchor(250, -2000, 300, 0));
+        // 已经过了中点，但是往下甩，应该展开
+        assertEquals(300, settler.chooseAnchor(50, 2000, 300, 0));
+    }
+
+    @Test
+    public void start_keepsReleaseVelocity() throws Exception {
+        SpringSettler settler = new SpringSettler();
+        settler.start(200, -1500, 0);
+        assertTrue(settler.update(0));
+        assertEquals(-1500f, settler.getVelocity(), 0.01f);
+        // 第一帧的速度和松手速度同方向，定长 startScroll 在这里是从 0 开始的
+        assertTrue(settler.update(FRAME_SECONDS));
+        assertTrue(settler.getVelocity() < 0);
+        // 初速度不随着推进改变
+        assertEquals(-1500f, settler.getStartVelocity(), 0f);
+    }
+
+    @Test
+    public void framesToSettle_withinStartScrollBudget() throws Exception {
+        // Scroller.startScroll 默认 250ms，也就是 60fps 下 15 帧
+        assertTrue(framesToSettle(300, 0, 0) <= 15);
+        assertTrue(framesToSettle(150, 0, 0) <= 15);
+        assertTrue(framesToSettle(250, -2000, 0) <= 15);
+    }
+
+    @Test
+    public void update_endsExactlyOnAnchor() throws Exception {
+        SpringSettler settler = new SpringSettler();
+        settler.start(300, 0, 0);
+        int frames = 0;
+        while (settler.update(++frames * FRAME_SECONDS)) {
+            // 临界阻尼不会越过停靠点
+            assertTrue(settler.getPosition() >= 0);
+        }
+        assertEquals(0, settler.getPosition());
+        assertEquals(0f, settler.getVelocity(), 0f);
+        assertTrue(settler.isAtRest());
+        assertFalse(settler.update(frames * FRAME_SECONDS));
+    }
+
+    private static int framesToSettle(int position, float velocity, int anchor) {
+        SpringSettler settler = new SpringSettler();
+        settler.start(position, velocity, anchor);
+        int frames = 0;
+        while (settler.update(++frames * FRAME_SECONDS)) {
+            if (frames > 600) {
+                throw new AssertionError("spring never settled");
+            }
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,66 @@
+package org.cgspine.nestscroll.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link VelocityEstimator} 的 JVM 单元测试
+ */
+public class VelocityEstimatorTest {
+    private static final float MAX_VELOCITY = 8000;
+
+    @Test
+    public void constantSpeed_exactVelocity() throws Exception {
+        VelocityEstimator estimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+        // 每 8ms 往上 12px，也就是 -1500px/s
+        for (int i = 0; i < 30; i++) {
+            estimator.addSample(1000 + i * 8, -12 * i);
+        }
+        assertEquals(-1500f, estimator.computeVelocity(MAX_VELOCITY), 0.5f);
+    }
+
+    @Test
+    public void onlyRecentSamplesCount() throws Exception {
+        VelocityEstimator estimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+        float position = 0;
+        // 先慢后快，只有最近 100ms 的快速段参与计算，慢速段的最后一个点在 100ms 之外
+        for (int i = 0; i < 10; i++) {
+            position += 1;
+            estimator.addSample(i * 16, position);
+        }
+        for (int i = 10; i < 20; i++) {
+            position += 40;
+            estimator.addSample(i * 8 + 100, position);
+        }
+        assertEquals(5000f, estimator.computeVelocity(MAX_VELOCITY), 0.5f);
+    }
+
+    @Test
+    public void pauseBeforeRelease_noVelocity() throws Exception {
+        VelocityEstimator estimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+        for (int i = 0; i < 10; i++) {
+            estimator.addSample(i * 8, i * 20);
+        }
+        // 手指停了 60ms 再抬起
+        estimator.addSample(72 + 60, 180);
+        assertEquals(0f, estimator.computeVelocity(MAX_VELOCITY), 0f);
+    }
+
+    @Test
+    public void clampsAndClears() throws Exception {
+        VelocityEstimator estimator = new VelocityEstimator(4);
+        estimator.addSample(0, 0);
+        estimator.addSample(1, 100);
+        assertEquals(MAX_VELOCITY, estimator.computeVelocity(MAX_VELOCITY), 0f);
+        estimator.clear();
+        assertEquals(0, estimator.size());
+        assertEquals(0f, estimator.computeVelocity(MAX_VELOCITY), 0f);
+        // 环形缓冲区写满之后只保留最新的 4 个点
+        for (int i = 0; i < 10; i++) {
+            estimator.addSample(i * 10, i < 6 ? 0 : (i - 6) * 10);
+        }
+        assertEquals(4, estimator.size());
+        assertEquals(1000f, estimator.computeVelocity(MAX_VELOCITY), 0.5f);
+    }
+}
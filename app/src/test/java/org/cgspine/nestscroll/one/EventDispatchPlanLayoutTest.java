@@ -0,0 +1,453 @@
+package org.cgspine.nestscroll.one;
+
+import android.content.Context;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.cgspine.nestscroll.DrawCountingShadowView;
+import org.cgspine.nestscroll.GestureReplayer;
+import org.cgspine.nestscroll.MeasureCountingShadowView;
+import org.cgspine.nestscroll.engine.GestureClassifier;
+import org.cgspine.nestscroll.engine.OnScrollSessionListener;
+import org.cgspine.nestscroll.engine.ScrollSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.cgspine.nestscroll.GestureReplayer.FRAME_MS;
+import static org.cgspine.nestscroll.GestureReplayer.SETTLE_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link EventDispatchPlanLayout} 的测试：拖动交接用一个假的目标 View 直接测；
+ * 测量缓存、translation 模式、方向判定这些和真实子 View 相关的行为用 {@link GestureReplayer} 在 Activity 里重放手势
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w411dp-h731dp")
+public class EventDispatchPlanLayoutTest {
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private EventDispatchPlanLayout mLayout;
+    private CountingTarget mTarget;
+    private long mDownTime;
+
+    @Before
+    public void setUp() throws Exception {
+        Context context = ApplicationProvider.getApplicationContext();
+        mLayout = new EventDispatchPlanLayout(context);
+        mLayout.addView(new View(context));
+        mTarget = new CountingTarget(context);
+        mLayout.addView(mTarget);
+        mLayout.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        mLayout.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    @Test
+    public void dragUpPastEnd_handsOffExactlyOnce() throws Exception {
+        float y = 1000;
+        dispatch(MotionEvent.ACTION_DOWN, y);
+        assertEquals(1, mTarget.mDownCount);
+
+        // 一直往上拖，远远超过 target 的收起距离
+        for (int i = 0; i < 100; i++) {
+            y -= 10;
+            MotionEvent move = obtain(MotionEvent.ACTION_MOVE, y);
+            mLayout.dispatchTouchEvent(move);
+            // 调用方的事件不能被改成 down
+            assertEquals(MotionEvent.ACTION_MOVE, move.getActionMasked());
+            move.recycle();
+        }
+        dispatch(MotionEvent.ACTION_UP, y);
+
+        // 一次真实的 down + 一次交接
+        assertEquals(2, mTarget.mDownCount);
+        // 交接之后的 move 走正常分发直接到达列表
+        assertTrue(mTarget.mMoveCountAfterHandoff > 90);
+        assertEquals(1, mTarget.mUpCount);
+    }
+
+    @Test
+    public void dragDownOnly_neverHandsOff() throws Exception {
+        float y = 500;
+        dispatch(MotionEvent.ACTION_DOWN, y);
+        for (int i = 0; i < 50; i++) {
+            y += 10;
+            dispatch(MotionEvent.ACTION_MOVE, y);
+        }
+        dispatch(MotionEvent.ACTION_UP, y);
+        assertEquals(1, mTarget.mDownCount);
+    }
+
+    @Test
+    public void dragUpPastEnd_keepsGestureWhenChildCannotScroll() throws Exception {
+        // 内容不满一屏，交给列表也滚不动
+        mTarget.mScrollRange = 0;
+        float y = 1000;
+        dispatch(MotionEvent.ACTION_DOWN, y);
+        for (int i = 0; i < 100; i++) {
+            y -= 10;
+            dispatch(MotionEvent.ACTION_MOVE, y);
+        }
+        dispatch(MotionEvent.ACTION_UP, y);
+        assertEquals(1, mTarget.mDownCount);
+        assertEquals(0, mTarget.mMoveCountAfterHandoff);
+    }
+
+    @Test
+    public void dragUpPastEnd_withTwoFingers_handsOffSinglePointerDown() throws Exception {
+        float y0 = 1000;
+        float y1 = 900;
+        dispatch(MotionEvent.ACTION_DOWN, y0);
+        for (int i = 0; i < 3; i++) {
+            y0 -= 10;
+            dispatch2(MotionEvent.ACTION_MOVE, 1, y0, 0);
+        }
+        // 第二根手指按下之后由它来拖动，第一根手指留在屏幕上不动
+        dispatch2(MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT), 2, y0, y1);
+        for (int i = 0; i < 200 && mTarget.mDownCount < 2; i++) {
+            y1 -= 10;
+            dispatch2(MotionEvent.ACTION_MOVE, 2, y0, y1);
+        }
+        assertEquals(2, mTarget.mDownCount);
+        // 交接的 down 只有一根手指，就是正在拖动的那根，位置也是它的位置
+        assertEquals(1, mTarget.mLastDownPointerCount);
+        assertEquals(1, mTarget.mLastDownPointerId);
+        assertEquals(y1, mTarget.mLastDownY, 0.5f);
+        dispatch2(MotionEvent.ACTION_POINTER_UP, 2, y0, y1);
+        y1 -= 10;
+        MotionEvent up = MotionEvent.obtain(mDownTime, mDownTime + 16, MotionEvent.ACTION_UP, WIDTH / 2f, y1, 0);
+        mLayout.dispatchTouchEvent(up);
+        up.recycle();
+        assertEquals(1, mTarget.mUpCount);
+    }
+
+    @Test
+    @Config(shadows = DrawCountingShadowView.class)
+    public void settle_drawsOnlyOnFramesThatMove() throws Exception {
+        // 优化之前的实现：定位动画靠 computeScroll + invalidate() 推进，最后一帧之后还会再 invalidate 一次
+        final int[] baseline = new GestureReplayer(EventDispatchPlanActivity.class,
+                EventDispatchPlanLayout.class, BaselineEventDispatchPlanLayout.class).shortDragThenSettle();
+        final int[] current = new GestureReplayer(EventDispatchPlanActivity.class).shortDragThenSettle();
+        final String counts = "baseline " + Arrays.toString(baseline) + ", current " + Arrays.toString(current);
+        assertTrue(counts, baseline[0] > 0 && current[0] > 0);
+        // 每一帧目标 View 和头部最多各画一次
+        assertTrue(counts, baseline[2] <= 1 && current[2] <= 1);
+        // 现在只有动了的帧才会重画，旧的写法至少多画一帧什么都没动的
+        assertEquals(counts, 0, current[1]);
+        assertTrue(counts, baseline[1] >= 1);
+        assertTrue(counts, current[3] < baseline[3]);
+    }
+
+    @Test
+    public void childRequestLayoutDuringDrag_keepsOffsets() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(EventDispatchPlanActivity.class);
+        replayer.down(replayer.centerX(), replayer.startY());
+        for (int i = 0; i < 10; i++) {
+            replayer.move(0, -4);
+        }
+        final int targetTop = replayer.getTarget().getTop();
+        final int headerTop = replayer.getHeader().getTop();
+        // 列表内容变化引起的重新布局：容器要走一遍布局，但不能把拖到一半的偏移量改掉
+        replayer.getTarget().requestLayout();
+        replayer.idle(FRAME_MS);
+        assertEquals(targetTop, replayer.getTarget().getTop());
+        assertEquals(headerTop, replayer.getHeader().getTop());
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+    }
+
+    @Test
+    @Config(shadows = MeasureCountingShadowView.class)
+    public void childRequestLayoutDuringDrag_remeasuresOnlyThatChild() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(EventDispatchPlanActivity.class);
+        MeasureCountingShadowView.watch(replayer.getTarget(), replayer.getHeader());
+        replayer.down(replayer.centerX(), replayer.startY());
+        for (int i = 0; i < 10; i++) {
+            replayer.move(0, -4);
+        }
+        assertEquals(0, MeasureCountingShadowView.count(replayer.getTarget()));
+        assertEquals(0, MeasureCountingShadowView.count(replayer.getHeader()));
+        // 列表请求重新布局：只有列表被重新测量，头部 View 的规格和状态都没变，容器不会再去调它的 measure
+        replayer.getTarget().requestLayout();
+        replayer.idle(FRAME_MS);
+        assertEquals(1, MeasureCountingShadowView.count(replayer.getTarget()));
+        assertEquals(0, MeasureCountingShadowView.count(replayer.getHeader()));
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+    }
+
+    @Test
+    public void setPadding_remeasuresChildren() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(EventDispatchPlanActivity.class);
+        View container = replayer.getContainer();
+        final int padding = 40;
+        // 容器收到的规格没变，但是扣掉 padding 之后交给子 View 的规格变了
+        container.setPadding(padding, padding, padding, padding);
+        replayer.idle(FRAME_MS);
+        assertEquals(container.getWidth() - 2 * padding, replayer.getTarget().getMeasuredWidth());
+        assertEquals(container.getHeight() - 2 * padding, replayer.getTarget().getMeasuredHeight());
+        assertTrue(replayer.getHeader().getMeasuredWidth() <= container.getWidth() - 2 * padding);
+    }
+
+    @Test
+    public void translationMode_movesWithoutLayoutAndRestoresHeaderLayer() throws Exception {
+        for (String script : GestureReplayer.SCRIPTS) {
+            GestureReplayer replayer = new GestureReplayer(EventDispatchPlanActivity.class);
+            replayer.setUseTranslation(true);
+            final View target = replayer.getTarget();
+            final int initTop = GestureReplayer.visualTop(target);
+            replayer.run(script);
+            final int top = GestureReplayer.visualTop(target);
+            assertTrue(script + " stopped at " + top, top == initTop || top == 0);
+            assertEquals(script + " measure passes", 0, replayer.getRoot().getMeasureCount());
+            assertEquals(script + " layout passes", 0, replayer.getRoot().getLayoutCount());
+            // 定位结束后头部不再停留在硬件层上
+            assertEquals(script, View.LAYER_TYPE_NONE, replayer.getHeader().getLayerType());
+
+            // 之后的一次布局把 translationY 折算回布局位置，看到的位置不变
+            final int headerTop = GestureReplayer.visualTop(replayer.getHeader());
+            target.requestLayout();
+            replayer.idle(FRAME_MS);
+            assertEquals(script, top, target.getTop());
+            assertEquals(script, 0f, target.getTranslationY(), 0f);
+            assertEquals(script, headerTop, GestureReplayer.visualTop(replayer.getHeader()));
+        }
+    }
+
+    @Test
+    public void translationMode_promotesHeaderOnFirstHeaderMove() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(EventDispatchPlanActivity.class);
+        replayer.setUseTranslation(true);
+        replayer.down(replayer.centerX(), replayer.startY());
+        // 只是按下，头部还没有动
+        assertEquals(View.LAYER_TYPE_NONE, replayer.getHeader().getLayerType());
+        for (int i = 0; i < 3; i++) {
+            replayer.move(0, -30);
+        }
+        assertEquals(View.LAYER_TYPE_HARDWARE, replayer.getHeader().getLayerType());
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertEquals(View.LAYER_TYPE_NONE, replayer.getHeader().getLayerType());
+    }
+
+    @Test
+    public void gestureClassifier_decidesAxisWithinFirstMoves() throws Exception {
+        // 稍微带一点横向抖动的纵向拖动：父 View 要尽早接手
+        GestureReplayer vertical = new GestureReplayer(EventDispatchPlanActivity.class);
+        EventDispatchPlanLayout layout = (EventDispatchPlanLayout) vertical.getContainer();
+        final int initTop = vertical.getTarget().getTop();
+        final float x = vertical.centerX();
+        final float y = vertical.startY();
+        vertical.down(x, y);
+        for (int i = 0; i < 10; i++) {
+            vertical.move(0, i % 2 == 0 ? 1 : -1, -6);
+        }
+        GestureClassifier classifier = layout.getGestureClassifier();
+        assertEquals(GestureClassifier.VERTICAL, classifier.getDecision());
+        final long verticalMs = classifier.getDecisionDelayMs();
+        assertTrue("vertical decided after " + verticalMs + "ms", verticalMs <= 2 * FRAME_MS);
+        assertTrue(vertical.getTarget().getTop() < initTop);
+        vertical.up();
+        vertical.idle(SETTLE_MS);
+
+        // ViewPager 的横向翻页：父 View 整个手势都不能拦截
+        GestureReplayer horizontal = new GestureReplayer(EventDispatchPlanActivity.class);
+        layout = (EventDispatchPlanLayout) horizontal.getContainer();
+        horizontal.down(x, y);
+        for (int i = 0; i < 10; i++) {
+            horizontal.move(0, -40, i % 2 == 0 ? -3 : 2);
+        }
+        classifier = layout.getGestureClassifier();
+        assertEquals(GestureClassifier.HORIZONTAL, classifier.getDecision());
+        final long horizontalMs = classifier.getDecisionDelayMs();
+        assertTrue("horizontal decided after " + horizontalMs + "ms", horizontalMs <= 2 * FRAME_MS);
+        horizontal.up();
+        horizontal.idle(SETTLE_MS);
+        assertEquals(initTop, horizontal.getTarget().getTop());
+
+        // 纵向拖动比原来按 touch slop 判断要早：每个 move 走 6px，原来要攒够一个 slop 的距离才开始拖动
+        final int touchSlop = ViewConfiguration.get(layout.getContext()).getScaledTouchSlop();
+        final long slopMs = (long) Math.ceil(touchSlop / 6f) * FRAME_MS;
+        assertTrue("vertical " + verticalMs + "ms, slop " + slopMs + "ms", verticalMs < slopMs);
+    }
+
+    @Test
+    public void dragStart_followsFingerFromFirstMove() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(EventDispatchPlanActivity.class);
+        final int initTop = replayer.getTarget().getTop();
+        replayer.down(replayer.centerX(), replayer.startY());
+        // 不到一个 touch slop 的第一个 move 就开始跟手，而且按下之后走过的距离一点不丢
+        replayer.move(0, -6);
+        assertEquals(initTop - 6, replayer.getTarget().getTop());
+        replayer.move(0, -6);
+        assertEquals(initTop - 12, replayer.getTarget().getTop());
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+    }
+
+    @Test
+    public void scrollSession_startsOnFirstDelta() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(EventDispatchPlanActivity.class);
+        final int[] sessions = new int[1];
+        final int[] events = new int[1];
+        replayer.setOnScrollSessionListener(new OnScrollSessionListener() {
+            @Override
+            public void onScrollSession(ScrollSession session) {
+                sessions[0]++;
+                events[0] = session.getEventCount();
+            }
+        });
+        final float x = replayer.centerX();
+        final float y = replayer.startY();
+        // 点一下：没有任何位移，不算一次滚动
+        replayer.down(x, y);
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertEquals(0, sessions[0]);
+
+        replayer.down(x, y);
+        for (int i = 0; i < 10; i++) {
+            replayer.move(0, -5);
+        }
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertEquals(1, sessions[0]);
+        assertTrue(events[0] > 0);
+    }
+
+    @Test
+    public void scrollSession_dragHandoffReintercept_isOneSession() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(EventDispatchPlanActivity.class);
+        final int initTop = replayer.getTarget().getTop();
+        final int[] sessions = new int[1];
+        replayer.setOnScrollSessionListener(new OnScrollSessionListener() {
+            @Override
+            public void onScrollSession(ScrollSession session) {
+                sessions[0]++;
+            }
+        });
+        replayer.down(replayer.centerX(), replayer.startY());
+        // 往上拖过结束位置，手势交给列表，列表接着滚
+        for (int i = 0; i < 10; i++) {
+            replayer.move(0, -20);
+        }
+        assertEquals(0, replayer.getTarget().getTop());
+        assertTrue(replayer.currentList().canScrollVertically(-1));
+        // 再往下拖：列表回到顶部之后又被父 View 拦截回来，把目标 View 往下拉
+        for (int i = 0; i < 20; i++) {
+            replayer.move(0, 20);
+        }
+        assertTrue(replayer.getTarget().getTop() > 0);
+        // 手指抬起之前都是同一次手势
+        assertEquals(0, sessions[0]);
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertEquals(initTop, replayer.getTarget().getTop());
+        assertEquals(1, sessions[0]);
+    }
+
+    private void dispatch(int action, float y) {
+        MotionEvent event = obtain(action, y);
+        mLayout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    private MotionEvent obtain(int action, float y) {
+        if (action == MotionEvent.ACTION_DOWN) {
+            mDownTime += 1000;
+        }
+        return MotionEvent.obtain(mDownTime, mDownTime + 16, action, WIDTH / 2f, y, 0);
+    }
+
+    /**
+     * 两根手指的事件，id 分别是 0 和 1
+     */
+    private void dispatch2(int action, int pointerCount, float y0, float y1) {
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointerCount];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointerCount];
+        for (int i = 0; i < pointerCount; i++) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].id = i;
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].x = WIDTH / 2f + i * 100;
+            coords[i].y = i == 0 ? y0 : y1;
+        }
+        MotionEvent event = MotionEvent.obtain(mDownTime, mDownTime + 16, action, pointerCount,
+                properties, coords, 0, 0, 1, 1, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+        mLayout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 永远在顶部的列表，记录收到的事件
+     */
+    private static class CountingTarget extends View implements EventDispatchPlanLayout.ITargetView {
+        int mDownCount;
+        int mUpCount;
+        int mMoveCountAfterHandoff;
+        int mScrollRange = 10000;
+        int mLastDownPointerCount;
+        int mLastDownPointerId;
+        /**
+         * 最近一次 down 的纵坐标，换算到容器的坐标系
+         */
+        float mLastDownY;
+
+        CountingTarget(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            switch (event.getActionMasked()) {
+                case MotionEvent.ACTION_DOWN:
+                    mDownCount++;
+                    mLastDownPointerCount = event.getPointerCount();
+                    mLastDownPointerId = event.getPointerId(0);
+                    mLastDownY = event.getY() + getTop();
+                    break;
+                case MotionEvent.ACTION_MOVE:
+                    if (mDownCount > 1) {
+                        mMoveCountAfterHandoff++;
+                    }
+                    break;
+                case MotionEvent.ACTION_UP:
+                    mUpCount++;
+                    break;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean canChildScrollUp() {
+            return false;
+        }
+
+        @Override
+        public int getScrollOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getScrollRange() {
+            return mScrollRange;
+        }
+
+        @Override
+        public float fling(float vy) {
+            return vy;
+        }
+    }
+}
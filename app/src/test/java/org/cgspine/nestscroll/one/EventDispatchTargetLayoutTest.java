@@ -0,0 +1,194 @@
+package org.cgspine.nestscroll.one;
+
+import android.content.Context;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.viewpager.widget.ViewPager;
+
+import org.cgspine.nestscroll.R;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * {@link EventDispatchTargetLayout#canChildScrollUp()} 缓存的测试：一次手势里实际查询列表滚动范围的次数。
+ * 当前页的列表换成计数的 LayoutManager，所有 computeVerticalScrollRange 的调用都会被数到。
+ * 对比用的旧写法是一个每次都调用 ViewCompat.canScrollVertically 的子类，通过 LayoutInflater 的 Factory2 换进布局里
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EventDispatchTargetLayoutTest {
+
+    @Test
+    public void gesture_queriesScrollRangeAtMostOncePerListLayout() throws Exception {
+        EventDispatchPlanActivity activity = Robolectric.buildActivity(EventDispatchPlanActivity.class)
+                .setup().get();
+        EventDispatchPlanLayout layout = activity.findViewById(R.id.scrollLayout);
+        EventDispatchTargetLayout target = activity.findViewById(R.id.scroll_view);
+        RecyclerView list = currentList((ViewPager) target.findViewById(R.id.viewpager));
+        CountingLayoutManager layoutManager = new CountingLayoutManager(activity);
+        list.setLayoutManager(layoutManager);
+        shadowOf(Looper.getMainLooper()).idle();
+        assertFalse(target.canChildScrollUp());
+
+        final int queriesBefore = layoutManager.mRangeQueries;
+        final int layoutsBefore = layoutManager.mLayouts;
+        final float x = layout.getWidth() / 2f;
+        float y = layout.getHeight() * 0.9f;
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(layout, downTime, MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 0; i < 40; i++) {
+            y -= 10;
+            dispatch(layout, downTime, MotionEvent.ACTION_MOVE, x, y);
+        }
+        dispatch(layout, downTime, MotionEvent.ACTION_UP, x, y);
+        final int queries = layoutManager.mRangeQueries - queriesBefore;
+        final int layouts = layoutManager.mLayouts - layoutsBefore;
+
+        // 拖动和滚动都只读缓存，只有列表重新布局（条目变了）时才重新查询一次；这次手势没有翻页
+        assertTrue("queries " + queries + ", list layouts " + layouts, queries <= layouts);
+        // 列表被拖动之后，缓存的值要跟着变
+        assertTrue(target.canChildScrollUp());
+    }
+
+    @Test
+    public void gesture_queriesFarLessThanLegacyCanScrollVertically() throws Exception {
+        // 同一段手势分别跑旧的每次都问 ViewCompat.canScrollVertically 的写法和现在的缓存。
+        // 手势在头部的范围内来回拖，列表不会接手，每个事件都会经过父 View 的 canChildScrollUp
+        final int[] legacy = replayReversal(true);
+        final int[] cached = replayReversal(false);
+        final int events = legacy[0];
+        assertTrue("legacy queries " + legacy[1] + ", events " + events, legacy[1] >= events);
+        // 缓存只在列表布局时查询一次，再加上停下来时的一次对齐
+        assertTrue("cached queries " + cached[1] + ", list layouts " + cached[2], cached[1] <= cached[2] + 1);
+        assertTrue("cached queries " + cached[1] + ", events " + events, cached[1] < events);
+    }
+
+    /**
+     * 在头部的范围内上下来回拖几次
+     *
+     * @param legacy 是否把目标 View 换成旧的写法
+     * @return {事件数, 滚动范围的查询次数, 列表的布局次数}
+     */
+    private static int[] replayReversal(boolean legacy) {
+        ActivityController<EventDispatchPlanActivity> controller =
+                Robolectric.buildActivity(EventDispatchPlanActivity.class);
+        if (legacy) {
+            controller.get().getLayoutInflater().setFactory2(new LayoutInflater.Factory2() {
+                @Override
+                public View onCreateView(View parent, String name, Context context, AttributeSet attrs) {
+                    return onCreateView(name, context, attrs);
+                }
+
+                @Override
+                public View onCreateView(String name, Context context, AttributeSet attrs) {
+                    if (EventDispatchTargetLayout.class.getName().equals(name)) {
+                        return new LegacyTargetLayout(context, attrs);
+                    }
+                    return null;
+                }
+            });
+        }
+        EventDispatchPlanActivity activity = controller.setup().get();
+        EventDispatchPlanLayout layout = activity.findViewById(R.id.scrollLayout);
+        EventDispatchTargetLayout target = activity.findViewById(R.id.scroll_view);
+        assertEquals(legacy, target instanceof LegacyTargetLayout);
+        RecyclerView list = currentList((ViewPager) target.findViewById(R.id.viewpager));
+        CountingLayoutManager layoutManager = new CountingLayoutManager(activity);
+        list.setLayoutManager(layoutManager);
+        shadowOf(Looper.getMainLooper()).idle();
+
+        final int queriesBefore = layoutManager.mRangeQueries;
+        final int layoutsBefore = layoutManager.mLayouts;
+        final float x = layout.getWidth() / 2f;
+        float y = layout.getHeight() * 0.9f;
+        final long downTime = SystemClock.uptimeMillis();
+        int events = 0;
+        dispatch(layout, downTime, MotionEvent.ACTION_DOWN, x, y);
+        events++;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 16; i++) {
+                y += i < 8 ? -5 : 5;
+                dispatch(layout, downTime, MotionEvent.ACTION_MOVE, x, y);
+                events++;
+            }
+        }
+        dispatch(layout, downTime, MotionEvent.ACTION_UP, x, y);
+        events++;
+        shadowOf(Looper.getMainLooper()).idleFor(1500, TimeUnit.MILLISECONDS);
+        return new int[]{events, layoutManager.mRangeQueries - queriesBefore, layoutManager.mLayouts - layoutsBefore};
+    }
+
+    private static RecyclerView currentList(ViewPager pager) {
+        for (int i = 0; i < pager.getChildCount(); i++) {
+            View page = pager.getChildAt(i);
+            if (page instanceof RecyclerView && page.getLeft() == pager.getScrollX()) {
+                return (RecyclerView) page;
+            }
+        }
+        throw new AssertionError("no current page");
+    }
+
+    private static void dispatch(EventDispatchPlanLayout layout, long downTime, int action, float x, float y) {
+        shadowOf(Looper.getMainLooper()).idleFor(16, TimeUnit.MILLISECONDS);
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        layout.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    /**
+     * 缓存之前的写法：每次都直接问当前页的列表能不能往上滚
+     */
+    private static class LegacyTargetLayout extends EventDispatchTargetLayout {
+
+        LegacyTargetLayout(Context context, AttributeSet attrs) {
+            super(context, attrs);
+        }
+
+        @Override
+        public boolean canChildScrollUp() {
+            return ViewCompat.canScrollVertically(currentList((ViewPager) findViewById(R.id.viewpager)), -1);
+        }
+    }
+
+    /**
+     * 统计滚动范围的查询次数和列表的布局次数
+     */
+    private static class CountingLayoutManager extends LinearLayoutManager {
+        int mRangeQueries;
+        int mLayouts;
+
+        CountingLayoutManager(Context context) {
+            super(context);
+            setRecycleChildrenOnDetach(true);
+        }
+
+        @Override
+        public int computeVerticalScrollRange(RecyclerView.State state) {
+            mRangeQueries++;
+            return super.computeVerticalScrollRange(state);
+        }
+
+        @Override
+        public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+            mLayouts++;
+            super.onLayoutChildren(recycler, state);
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.cgspine.nestscroll.two;
+
+import android.view.View;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.cgspine.nestscroll.DrawCountingShadowView;
+import org.cgspine.nestscroll.GestureReplayer;
+import org.cgspine.nestscroll.MeasureCountingShadowView;
+import org.cgspine.nestscroll.engine.OnScrollSessionListener;
+import org.cgspine.nestscroll.engine.ScrollSession;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+
+import static org.cgspine.nestscroll.GestureReplayer.FRAME_MS;
+import static org.cgspine.nestscroll.GestureReplayer.SETTLE_MS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link NestingScrollPlanLayout} 的测试，用 {@link GestureReplayer} 在 {@link NestingScrollActivity} 里重放手势
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(qualifiers = "w411dp-h731dp")
+public class NestingScrollPlanLayoutTest {
+
+    @Test
+    @Config(shadows = DrawCountingShadowView.class)
+    public void settle_drawsOnlyOnFramesThatMove() throws Exception {
+        // 优化之前的实现：定位动画靠 computeScroll + invalidate() 推进，最后一帧之后还会再 invalidate 一次
+        final int[] baseline = new GestureReplayer(NestingScrollActivity.class,
+                NestingScrollPlanLayout.class, BaselineNestingScrollPlanLayout.class).shortDragThenSettle();
+        final int[] current = new GestureReplayer(NestingScrollActivity.class).shortDragThenSettle();
+        final String counts = "baseline " + Arrays.toString(baseline) + ", current " + Arrays.toString(current);
+        assertTrue(counts, baseline[0] > 0 && current[0] > 0);
+        // 每一帧目标 View 和头部最多各画一次
+        assertTrue(counts, baseline[2] <= 1 && current[2] <= 1);
+        // 现在只有动了的帧才会重画，旧的写法至少多画一帧什么都没动的
+        assertEquals(counts, 0, current[1]);
+        assertTrue(counts, baseline[1] >= 1);
+        assertTrue(counts, current[3] < baseline[3]);
+    }
+
+    @Test
+    public void childRequestLayoutDuringDrag_keepsOffsets() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+        replayer.down(replayer.centerX(), replayer.startY());
+        for (int i = 0; i < 10; i++) {
+            replayer.move(0, -4);
+        }
+        final int targetTop = replayer.getTarget().getTop();
+        final int headerTop = replayer.getHeader().getTop();
+        // 列表内容变化引起的重新布局：容器要走一遍布局，但不能把拖到一半的偏移量改掉
+        replayer.getTarget().requestLayout();
+        replayer.idle(FRAME_MS);
+        assertEquals(targetTop, replayer.getTarget().getTop());
+        assertEquals(headerTop, replayer.getHeader().getTop());
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+    }
+
+    @Test
+    @Config(shadows = MeasureCountingShadowView.class)
+    public void childRequestLayoutDuringDrag_remeasuresOnlyThatChild() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+        MeasureCountingShadowView.watch(replayer.getTarget(), replayer.getHeader());
+        replayer.down(replayer.centerX(), replayer.startY());
+        for (int i = 0; i < 10; i++) {
+            replayer.move(0, -4);
+        }
+        assertEquals(0, MeasureCountingShadowView.count(replayer.getTarget()));
+        assertEquals(0, MeasureCountingShadowView.count(replayer.getHeader()));
+        // 列表请求重新布局：只有列表被重新测量，头部 View 的规格和状态都没变，容器不会再去调它的 measure
+        replayer.getTarget().requestLayout();
+        replayer.idle(FRAME_MS);
+        assertEquals(1, MeasureCountingShadowView.count(replayer.getTarget()));
+        assertEquals(0, MeasureCountingShadowView.count(replayer.getHeader()));
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+    }
+
+    @Test
+    public void setPadding_remeasuresChildren() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+        View container = replayer.getContainer();
+        final int padding = 40;
+        // 容器收到的规格没变，但是扣掉 padding 之后交给子 View 的规格变了
+        container.setPadding(padding, padding, padding, padding);
+        replayer.idle(FRAME_MS);
+        assertEquals(container.getWidth() - 2 * padding, replayer.getTarget().getMeasuredWidth());
+        assertEquals(container.getHeight() - 2 * padding, replayer.getTarget().getMeasuredHeight());
+        assertTrue(replayer.getHeader().getMeasuredWidth() <= container.getWidth() - 2 * padding);
+    }
+
+    @Test
+    public void translationMode_movesWithoutLayoutAndRestoresHeaderLayer() throws Exception {
+        for (String script : GestureReplayer.SCRIPTS) {
+            GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+            replayer.setUseTranslation(true);
+            final View target = replayer.getTarget();
+            final int initTop = GestureReplayer.visualTop(target);
+            replayer.run(script);
+            final int top = GestureReplayer.visualTop(target);
+            assertTrue(script + " stopped at " + top, top == initTop || top == 0);
+            assertEquals(script + " measure passes", 0, replayer.getRoot().getMeasureCount());
+            assertEquals(script + " layout passes", 0, replayer.getRoot().getLayoutCount());
+            // 定位结束后头部不再停留在硬件层上
+            assertEquals(script, View.LAYER_TYPE_NONE, replayer.getHeader().getLayerType());
+
+            // 之后的一次布局把 translationY 折算回布局位置，看到的位置不变
+            final int headerTop = GestureReplayer.visualTop(replayer.getHeader());
+            target.requestLayout();
+            replayer.idle(FRAME_MS);
+            assertEquals(script, top, target.getTop());
+            assertEquals(script, 0f, target.getTranslationY(), 0f);
+            assertEquals(script, headerTop, GestureReplayer.visualTop(replayer.getHeader()));
+        }
+    }
+
+    @Test
+    public void translationMode_promotesHeaderOnFirstHeaderMove() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+        replayer.setUseTranslation(true);
+        replayer.down(replayer.centerX(), replayer.startY());
+        // 只是按下，嵌套滚动已经被接受了，但头部还没有动
+        assertEquals(View.LAYER_TYPE_NONE, replayer.getHeader().getLayerType());
+        for (int i = 0; i < 3; i++) {
+            replayer.move(0, -30);
+        }
+        assertEquals(View.LAYER_TYPE_HARDWARE, replayer.getHeader().getLayerType());
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertEquals(View.LAYER_TYPE_NONE, replayer.getHeader().getLayerType());
+    }
+
+    @Test
+    public void scrollSession_startsOnFirstDelta() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+        final int[] sessions = new int[1];
+        final int[] events = new int[1];
+        replayer.setOnScrollSessionListener(new OnScrollSessionListener() {
+            @Override
+            public void onScrollSession(ScrollSession session) {
+                sessions[0]++;
+                events[0] = session.getEventCount();
+            }
+        });
+        final float x = replayer.centerX();
+        final float y = replayer.startY();
+        // 点一下：嵌套滚动被接受了，但是没有任何位移，不算一次滚动
+        replayer.down(x, y);
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertEquals(0, sessions[0]);
+
+        replayer.down(x, y);
+        for (int i = 0; i < 10; i++) {
+            replayer.move(0, -30);
+        }
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertEquals(1, sessions[0]);
+        assertTrue(events[0] > 0);
+    }
+
+    @Test
+    public void downwardFlingPastListTop_expandsHeader() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+        final int initTop = replayer.getTarget().getTop();
+        replayer.run("fastFling");
+        assertEquals(0, replayer.getTarget().getTop());
+
+        // 列表滚下去一段，往下甩的时候列表先滑到顶部，剩下的速度要接着把头部展开
+        RecyclerView list = replayer.currentList();
+        list.scrollToPosition(0);
+        list.scrollBy(0, 1000);
+        replayer.idle(FRAME_MS);
+        assertTrue(list.canScrollVertically(-1));
+
+        replayer.down(replayer.centerX(), replayer.getRoot().getHeight() * 0.3f);
+        for (int i = 0; i < 6; i++) {
+            replayer.move(0, 60);
+        }
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertFalse(list.canScrollVertically(-1));
+        assertEquals(initTop, replayer.getTarget().getTop());
+    }
+
+    @Test
+    public void scrollSession_downwardFlingContinuation_isOneSession() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+        final int initTop = replayer.getTarget().getTop();
+        replayer.run("fastFling");
+        RecyclerView list = replayer.currentList();
+        list.scrollToPosition(0);
+        list.scrollBy(0, 1000);
+        replayer.idle(FRAME_MS);
+
+        final int[] sessions = new int[1];
+        replayer.setOnScrollSessionListener(new OnScrollSessionListener() {
+            @Override
+            public void onScrollSession(ScrollSession session) {
+                sessions[0]++;
+            }
+        });
+        // 往下甩：拖动、列表的惯性滑动、接着展开头部，整个是一次手势
+        replayer.down(replayer.centerX(), replayer.getRoot().getHeight() * 0.3f);
+        for (int i = 0; i < 6; i++) {
+            replayer.move(0, 60);
+        }
+        replayer.up();
+        replayer.idle(SETTLE_MS);
+        assertEquals(initTop, replayer.getTarget().getTop());
+        assertEquals(1, sessions[0]);
+    }
+
+    @Test
+    public void downwardFlingPastListTop_headerContinuesAtListVelocity() throws Exception {
+        GestureReplayer replayer = new GestureReplayer(NestingScrollActivity.class);
+        final View target = replayer.getTarget();
+        replayer.run("fastFling");
+        RecyclerView list = replayer.currentList();
+        list.scrollToPosition(0);
+        list.scrollBy(0, 1000);
+        replayer.idle(FRAME_MS);
+
+        replayer.down(replayer.centerX(), replayer.getRoot().getHeight() * 0.3f);
+        for (int i = 0; i < 6; i++) {
+            replayer.move(0, 60);
+        }
+        replayer.up();
+        // 松手之后每一帧记下列表的偏移量和目标 View 的位置
+        final int frames = (int) (SETTLE_MS / FRAME_MS);
+        final int[] listOffsets = new int[frames + 1];
+        final int[] tops = new int[frames + 1];
+        listOffsets[0] = list.computeVerticalScrollOffset();
+        tops[0] = target.getTop();
+        for (int i = 1; i <= frames; i++) {
+            replayer.idle(FRAME_MS);
+            listOffsets[i] = list.computeVerticalScrollOffset();
+            tops[i] = target.getTop();
+        }
+        int k = 1;
+        while (k <= frames && tops[k] == tops[k - 1]) {
+            k++;
+        }
+        // 列表的速度：到顶之前最后一整帧的位移
+        // 头部的速度：列表停下的下一帧是第一整帧的 NON_TOUCH 位移，那一帧由头部全部接过去
+        // （到顶的那一帧里列表和头部各走了一部分）
+        assertTrue("header moved at frame " + k, k >= 2 && k + 1 <= frames);
+        final float listVelocity = listOffsets[k - 2] - listOffsets[k - 1];
+        final float headerVelocity = tops[k + 1] - tops[k];
+        // 速度守恒：允许 20% 的误差，列表在这两帧之间还在减速
+        assertTrue("list " + listVelocity, listVelocity > 0);
+        assertEquals("list " + listVelocity + ", header " + headerVelocity,
+                listVelocity, headerVelocity, listVelocity * 0.2f);
+    }
+}
@@ -0,0 +1,50 @@
+package org.cgspine.nestscroll.benchmarks;
+
+import org.cgspine.nestscroll.engine.OffsetEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 重放 CoordinatorLayout 方案的每个事件：TargetBehavior 移动 target，
+ * 之后 CoverBehavior.onDependentViewChanged 同步 target 的偏移范围并重新计算 header。
+ */
+@State(Scope.Thread)
+public class CoverBehaviorBenchmark {
+    private static final int TARGET_INIT_OFFSET = 600;
+    private static final int HEADER_INIT_OFFSET = 90;
+
+    @Param({GestureStreams.SLOW_DRAG, GestureStreams.FLING, GestureStreams.REVERSAL})
+    public String stream;
+
+    private int[] mDys;
+    private OffsetEngine mTargetEngine;
+    private OffsetEngine mCoverEngine;
+
+    @Setup
+    public void setUp() {
+        mDys = GestureStreams.byName(stream);
+        mTargetEngine = new OffsetEngine(TARGET_INIT_OFFSET, 0, 0, 0);
+        mCoverEngine = new OffsetEngine(0, 0, HEADER_INIT_OFFSET, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.LENGTH)
+    public int dependentViewChanged() {
+        final OffsetEngine target = mTargetEngine;
+        final OffsetEngine cover = mCoverEngine;
+        target.applyAbsolute(TARGET_INIT_OFFSET);
+        int sink = 0;
+        for (int dy : mDys) {
+            sink += target.applyDelta(dy);
+            final int headerLastOffset = cover.getHeaderCurrentOffset();
+            cover.setTargetOffsets(target.getTargetInitOffset(), target.getTargetEndOffset());
+            cover.applyAbsolute(target.getTargetCurrentOffset());
+            sink += cover.getHeaderCurrentOffset() - headerLastOffset;
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,59 @@
+package org.cgspine.nestscroll.benchmarks;
+
+import org.cgspine.nestscroll.engine.OffsetEngine;
+import org.cgspine.nestscroll.engine.ScrollDecision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 重放 EventDispatchPlanLayout.onTouchEvent 里拖动的纯逻辑部分：target / header 的偏移计算，
+ * 往上拖到结束位置时把手势交给列表，之后往下拖再重新接管。
+ * 什么时候交接、什么时候重新接管和容器一样由 {@link ScrollDecision} 判断，列表假设总是还能往下滚。
+ */
+@State(Scope.Thread)
+public class EventDispatchPlanBenchmark {
+    private static final int TARGET_INIT_OFFSET = 600;
+    private static final int HEADER_INIT_OFFSET = 180;
+    // 列表往下还能滚动的距离，足够大，交接总是会发生
+    private static final int LIST_REMAINING = Integer.MAX_VALUE;
+
+    @Param({GestureStreams.SLOW_DRAG, GestureStreams.FLING, GestureStreams.REVERSAL})
+    public String stream;
+
+    private int[] mDys;
+    private OffsetEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        mDys = GestureStreams.byName(stream);
+        mEngine = new OffsetEngine(TARGET_INIT_OFFSET, 0, HEADER_INIT_OFFSET, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.LENGTH)
+    public int drag() {
+        final OffsetEngine engine = mEngine;
+        engine.applyAbsolute(TARGET_INIT_OFFSET);
+        boolean handedOff = false;
+        int sink = 0;
+        for (int dy : mDys) {
+            if (handedOff) {
+                // 列表在顶部时往下拖，父 View 重新拦截
+                if (!ScrollDecision.canStartDrag(engine, dy)) {
+                    continue;
+                }
+                handedOff = false;
+            }
+            if (ScrollDecision.shouldHandOff(engine, dy, LIST_REMAINING)) {
+                handedOff = true;
+            }
+            sink += engine.applyDelta(dy);
+            sink += engine.getHeaderDelta();
+        }
+        return sink;
+    }
+}
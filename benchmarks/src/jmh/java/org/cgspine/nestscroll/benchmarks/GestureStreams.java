@@ -0,0 +1,73 @@
+package org.cgspine.nestscroll.benchmarks;
+
+/**
+ * 压测用的合成手势：每个元素是一次 move（或一帧 fling）带来的 dy，正数表示手指往下。
+ *
+ * 每条流都是确定的，并且首尾位移相加为 0，每次调用从同一个状态开始重放，不同轮次之间的结果可以直接比较。
+ */
+final class GestureStreams {
+    /**
+     * 每条流的事件数，基准方法的 @OperationsPerInvocation 用的也是它
+     */
+    static final int LENGTH = 256;
+
+    static final String SLOW_DRAG = "slowDrag";
+    static final String FLING = "fling";
+    static final String REVERSAL = "reversal";
+
+    private GestureStreams() {
+    }
+
+    static int[] byName(String name) {
+        switch (name) {
+            case SLOW_DRAG:
+                return slowDrag();
+            case FLING:
+                return fling();
+            case REVERSAL:
+                return reversal();
+            default:
+                throw new IllegalArgumentException("unknown stream: " + name);
+        }
+    }
+
+    /**
+     * 慢慢往上拖一半，再慢慢拖回来，每个事件 3~5px
+     */
+    static int[] slowDrag() {
+        final int[] dys = new int[LENGTH];
+        final int half = LENGTH / 2;
+        for (int i = 0; i < half; i++) {
+            dys[i] = -(3 + i % 3);
+            dys[LENGTH - 1 - i] = 3 + i % 3;
+        }
+        return dys;
+    }
+
+    /**
+     * 往上快速甩出去，每帧的位移按指数衰减，然后用同样的衰减甩回来
+     */
+    static int[] fling() {
+        final int[] dys = new int[LENGTH];
+        final int half = LENGTH / 2;
+        float v = 120;
+        for (int i = 0; i < half; i++) {
+            final int dy = Math.max(1, Math.round(v));
+            dys[i] = -dy;
+            dys[LENGTH - 1 - i] = dy;
+            v *= 0.97f;
+        }
+        return dys;
+    }
+
+    /**
+     * 每 16 个事件换一次方向，模拟手指来回拖
+     */
+    static int[] reversal() {
+        final int[] dys = new int[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            dys[i] = ((i / 16) % 2 == 0) ? -20 : 20;
+        }
+        return dys;
+    }
+}
@@ -0,0 +1,70 @@
+package org.cgspine.nestscroll.benchmarks;
+
+import org.cgspine.nestscroll.engine.HeaderMapping;
+import org.cgspine.nestscroll.engine.OffsetEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 不同 header 曲线下每个 move 的开销，查找表之后应该和曲线无关；
+ * rebake 衡量偏移范围变化时重新烘焙整张表的开销。
+ */
+@State(Scope.Thread)
+public class HeaderMappingBenchmark {
+    private static final int TARGET_INIT_OFFSET = 600;
+    private static final int HEADER_INIT_OFFSET = 180;
+
+    @Param({"linear", "eased", "stepped", "parallax"})
+    public String mapping;
+
+    private int[] mDys;
+    private OffsetEngine mEngine;
+    private HeaderMapping mMapping;
+
+    @Setup
+    public void setUp() {
+        mDys = GestureStreams.slowDrag();
+        switch (mapping) {
+            case "eased":
+                mMapping = HeaderMapping.eased();
+                break;
+            case "stepped":
+                mMapping = HeaderMapping.stepped(4);
+                break;
+            case "parallax":
+                mMapping = HeaderMapping.parallax(0.5f);
+                break;
+            default:
+                mMapping = HeaderMapping.linear();
+                break;
+        }
+        mEngine = new OffsetEngine(TARGET_INIT_OFFSET, 0, HEADER_INIT_OFFSET, 0);
+        mEngine.setHeaderMapping(mMapping);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.LENGTH)
+    public int move() {
+        final OffsetEngine engine = mEngine;
+        engine.applyAbsolute(TARGET_INIT_OFFSET);
+        int sink = 0;
+        for (int dy : mDys) {
+            engine.applyDelta(dy);
+            sink += engine.getHeaderDelta();
+        }
+        return sink;
+    }
+
+    @Benchmark
+    public int rebake() {
+        final OffsetEngine engine = mEngine;
+        // 在两个范围之间来回切换，保证每次都会重新烘焙
+        engine.setTargetOffsets(engine.getTargetInitOffset() == TARGET_INIT_OFFSET
+                ? TARGET_INIT_OFFSET - 1 : TARGET_INIT_OFFSET, 0);
+        return engine.getHeaderCurrentOffset();
+    }
+}
@@ -0,0 +1,50 @@
+package org.cgspine.nestscroll.benchmarks;
+
+import org.cgspine.nestscroll.engine.HeaderMapping;
+import org.cgspine.nestscroll.engine.LayerEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 多层联动时每个 move 的开销，应该随层数线性增长，并且不分配对象
+ */
+@State(Scope.Thread)
+public class LayerEngineBenchmark {
+    private static final int TARGET_INIT_OFFSET = 600;
+
+    @Param({"1", "3", "8"})
+    public int layers;
+
+    private int[] mDys;
+    private LayerEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        mDys = GestureStreams.slowDrag();
+        mEngine = new LayerEngine(TARGET_INIT_OFFSET, 0);
+        for (int i = 0; i < layers; i++) {
+            mEngine.addLayer(60 * (i + 1), -20 * i, i % 2 == 0 ? HeaderMapping.linear() : HeaderMapping.eased());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.LENGTH)
+    public int move() {
+        final LayerEngine engine = mEngine;
+        int target = TARGET_INIT_OFFSET;
+        engine.setTargetOffset(target);
+        int sink = 0;
+        for (int dy : mDys) {
+            target = Math.max(0, Math.min(TARGET_INIT_OFFSET, target + dy));
+            engine.setTargetOffset(target);
+            for (int i = 0; i < layers; i++) {
+                sink += engine.getLayerDelta(i);
+            }
+        }
+        return sink;
+    }
+}
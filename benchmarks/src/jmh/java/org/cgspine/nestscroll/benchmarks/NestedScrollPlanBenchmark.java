@@ -0,0 +1,64 @@
+package org.cgspine.nestscroll.benchmarks;
+
+import org.cgspine.nestscroll.engine.OffsetEngine;
+import org.cgspine.nestscroll.engine.ScrollDecision;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 重放嵌套滚动的消耗逻辑，NestingScrollPlanLayout 和 TargetBehavior 的 onNestedPreScroll / onNestedScroll 是同一套：
+ * 往上滑先由父 View 消耗，剩下的给列表；往下滑先由列表消耗，列表到顶之后剩下的给父 View。
+ * 每一段由谁来吃和容器一样由 {@link ScrollDecision} 判断，列表用一个整数滚动距离代替 canScrollVertically(-1)。
+ */
+@State(Scope.Thread)
+public class NestedScrollPlanBenchmark {
+    private static final int TARGET_INIT_OFFSET = 600;
+    private static final int HEADER_INIT_OFFSET = 180;
+
+    @Param({GestureStreams.SLOW_DRAG, GestureStreams.FLING, GestureStreams.REVERSAL})
+    public String stream;
+
+    private int[] mDys;
+    private OffsetEngine mEngine;
+
+    @Setup
+    public void setUp() {
+        mDys = GestureStreams.byName(stream);
+        mEngine = new OffsetEngine(TARGET_INIT_OFFSET, 0, HEADER_INIT_OFFSET, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.LENGTH)
+    public int nestedScroll() {
+        final OffsetEngine engine = mEngine;
+        engine.applyAbsolute(TARGET_INIT_OFFSET);
+        int listScrollY = 0;
+        int sink = 0;
+        for (int fingerDy : mDys) {
+            // 嵌套滚动的 dy 和手指方向相反
+            final int dy = -fingerDy;
+            int consumed = 0;
+            // onNestedPreScroll
+            final int preDelta = ScrollDecision.preScrollTargetDelta(dy, listScrollY > 0);
+            if (preDelta != 0) {
+                consumed = -engine.applyDelta(preDelta);
+            }
+            int unconsumed = dy - consumed;
+            // 列表自己滚动，最多滚到顶
+            final int listDy = Math.max(unconsumed, -listScrollY);
+            listScrollY += listDy;
+            unconsumed -= listDy;
+            // onNestedScroll
+            final int scrollDelta = ScrollDecision.scrollTargetDelta(engine, unconsumed, listScrollY > 0, false);
+            if (scrollDelta > 0) {
+                sink += engine.applyDelta(scrollDelta);
+            }
+            sink += consumed + engine.getHeaderDelta();
+        }
+        return sink + listScrollY;
+    }
+}
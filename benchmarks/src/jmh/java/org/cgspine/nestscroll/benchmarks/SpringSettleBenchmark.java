@@ -0,0 +1,37 @@
+package org.cgspine.nestscroll.benchmarks;
+
+import org.cgspine.nestscroll.engine.SpringSettler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 松手定位：选停靠点加上每一帧求解一次弹簧，这里的一次操作是一帧
+ */
+@State(Scope.Thread)
+public class SpringSettleBenchmark {
+    private static final int FRAMES = 16;
+    private static final float FRAME_SECONDS = 1 / 60f;
+
+    private SpringSettler mSettler;
+
+    @Setup
+    public void setUp() {
+        mSettler = new SpringSettler();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public int settle() {
+        final SpringSettler settler = mSettler;
+        settler.start(250, -1800, settler.chooseAnchor(250, -1800, 600, 0));
+        int sink = 0;
+        for (int i = 1; i <= FRAMES; i++) {
+            settler.update(i * FRAME_SECONDS);
+            sink += settler.getPosition();
+        }
+        return sink;
+    }
+}
@@ -0,0 +1,44 @@
+package org.cgspine.nestscroll.benchmarks;
+
+import org.cgspine.nestscroll.engine.VelocityEstimator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * 拖动时每个 move 采样一次、松手时算一次速度；一次操作是一个事件，松手的计算摊到整条流上
+ */
+@State(Scope.Thread)
+public class VelocityEstimatorBenchmark {
+    private static final long EVENT_INTERVAL_MS = 8;
+
+    @Param({GestureStreams.SLOW_DRAG, GestureStreams.FLING, GestureStreams.REVERSAL})
+    public String stream;
+
+    private int[] mDys;
+    private VelocityEstimator mEstimator;
+
+    @Setup
+    public void setUp() {
+        mDys = GestureStreams.byName(stream);
+        mEstimator = new VelocityEstimator(VelocityEstimator.DEFAULT_CAPACITY);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GestureStreams.LENGTH)
+    public float gesture() {
+        final VelocityEstimator estimator = mEstimator;
+        estimator.clear();
+        long time = 0;
+        float position = 0;
+        for (int dy : mDys) {
+            position += dy;
+            time += EVENT_INTERVAL_MS;
+            estimator.addSample(time, position);
+        }
+        return estimator.computeVelocity(8000);
+    }
+}